@@ -4,10 +4,15 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.igot.cb.contentprovider.service.ContentPartnerService;
 import com.igot.cb.pores.dto.CustomResponse;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import com.igot.cb.pores.util.AsyncResponseUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/contentPartner")
@@ -15,6 +20,9 @@ public class ContentProviderController {
     @Autowired
     private ContentPartnerService partnerService;
 
+    @Value("${elastic.search.timeout.ms}")
+    private long searchTimeoutMs;
+
     @PostMapping("/create")
     public ResponseEntity<CustomResponse> create(@RequestBody JsonNode contentPartnerDetails) {
         CustomResponse response = partnerService.createOrUpdate(contentPartnerDetails);
@@ -32,12 +40,25 @@ public class ContentProviderController {
         CustomResponse response = partnerService.read(id);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
-    @PostMapping("/filter")
-    public ResponseEntity<?> search(@RequestBody SearchCriteria searchCriteria) {
-        CustomResponse response = partnerService.searchEntity(searchCriteria);
+    @PostMapping("/read")
+    public ResponseEntity<CustomResponse> read(@RequestBody List<String> ids) {
+        CustomResponse response = partnerService.read(ids);
         return new ResponseEntity<>(response, response.getResponseCode());
     }
 
+    @PostMapping("/filter")
+    public DeferredResult<ResponseEntity<CustomResponse>> search(@RequestBody SearchCriteria searchCriteria) {
+        return AsyncResponseUtil.toDeferredResult(partnerService.searchEntityAsync(searchCriteria),
+                searchTimeoutMs);
+    }
+
+    @PostMapping("/filter/batch")
+    public DeferredResult<ResponseEntity<CustomResponse>> searchBatch(
+            @RequestBody List<SearchCriteria> searchCriteriaList) {
+        return AsyncResponseUtil.toDeferredResult(
+                partnerService.searchEntityBatchAsync(searchCriteriaList), searchTimeoutMs);
+    }
+
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<String> delete(@PathVariable String id) {
         String response = partnerService.delete(id);
@@ -1,10 +1,24 @@
 package com.igot.cb.contentprovider.repository;
 
 import com.igot.cb.contentprovider.entity.ContentPartnerEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.List;
+
 @Repository
 public interface ContentPartnerRepository extends JpaRepository<ContentPartnerEntity, String>{
 
-}
\ No newline at end of file
+    @Query(value = "SELECT max(id) FROM (SELECT id, ntile(:partitions) OVER (ORDER BY id) AS bucket FROM content_partner) partitioned GROUP BY bucket ORDER BY bucket", nativeQuery = true)
+    List<String> findPartitionUpperBounds(@Param("partitions") int partitions);
+
+    List<ContentPartnerEntity> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+            String afterId, String upperId, Pageable pageable);
+
+    List<ContentPartnerEntity> findByUpdatedOnGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            Timestamp since, String afterId, Pageable pageable);
+}
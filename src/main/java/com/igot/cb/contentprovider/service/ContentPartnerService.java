@@ -4,13 +4,22 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.igot.cb.pores.dto.CustomResponse;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface ContentPartnerService {
     CustomResponse createOrUpdate(JsonNode demandsJson);
 
     CustomResponse read(String id);
 
+    CustomResponse read(List<String> ids);
+
     CustomResponse searchEntity(SearchCriteria searchCriteria);
 
+    CompletableFuture<CustomResponse> searchEntityAsync(SearchCriteria searchCriteria);
+
+    CompletableFuture<CustomResponse> searchEntityBatchAsync(List<SearchCriteria> searchCriteriaList);
+
     String delete(String id);
 
 }
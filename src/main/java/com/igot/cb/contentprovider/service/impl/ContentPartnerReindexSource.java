@@ -0,0 +1,72 @@
+package com.igot.cb.contentprovider.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.igot.cb.contentprovider.entity.ContentPartnerEntity;
+import com.igot.cb.contentprovider.repository.ContentPartnerRepository;
+import com.igot.cb.pores.elasticsearch.reindex.ReindexSource;
+import com.igot.cb.pores.util.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the content_partner table for the reindex job, building documents the way
+ * {@link ContentPartnerServiceImpl} indexes them.
+ */
+@Component
+public class ContentPartnerReindexSource implements ReindexSource {
+
+    @Autowired
+    private ContentPartnerRepository entityRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public String getName() {
+        return "content_partner";
+    }
+
+    @Override
+    public String getIndexName() {
+        return Constants.CONTENT_PARTNER_INDEX_NAME;
+    }
+
+    @Override
+    public List<String> findPartitionUpperBounds(int partitions) {
+        return entityRepository.findPartitionUpperBounds(partitions);
+    }
+
+    @Override
+    public List<ReindexDocument> readPage(String afterKey, String upperKey, int pageSize) {
+        return toDocuments(entityRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                afterKey, upperKey, PageRequest.of(0, pageSize)));
+    }
+
+    @Override
+    public List<ReindexDocument> readUpdatedSince(Timestamp since, String afterKey, int pageSize) {
+        return toDocuments(entityRepository.findByUpdatedOnGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                since, afterKey, PageRequest.of(0, pageSize)));
+    }
+
+    private List<ReindexDocument> toDocuments(List<ContentPartnerEntity> entities) {
+        List<ReindexDocument> documents = new ArrayList<>(entities.size());
+        for (ContentPartnerEntity entity : entities) {
+            ObjectNode jsonNode = objectMapper.createObjectNode();
+            jsonNode.set(Constants.CONTENT_PROVIDER_ID, new TextNode(entity.getId()));
+            if (entity.getData() instanceof ObjectNode) {
+                jsonNode.setAll((ObjectNode) entity.getData());
+            }
+            documents.add(new ReindexDocument(entity.getId(),
+                    objectMapper.convertValue(jsonNode, Map.class)));
+        }
+        return documents;
+    }
+}
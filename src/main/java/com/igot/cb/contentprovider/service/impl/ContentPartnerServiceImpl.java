@@ -9,12 +9,16 @@ import com.igot.cb.contentprovider.entity.ContentPartnerEntity;
 import com.igot.cb.contentprovider.repository.ContentPartnerRepository;
 import com.igot.cb.contentprovider.service.ContentPartnerService;
 import com.igot.cb.pores.cache.CacheService;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.cache.SingleFlight;
 import com.igot.cb.pores.dto.CustomResponse;
 import com.igot.cb.pores.dto.RespParam;
+import com.igot.cb.pores.elasticsearch.dto.BatchSearchResult;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
 import com.igot.cb.pores.elasticsearch.dto.SearchResult;
 import com.igot.cb.pores.elasticsearch.service.EsUtilService;
 import com.igot.cb.pores.exceptions.CustomException;
+import com.igot.cb.pores.util.AsyncResponseUtil;
 import com.igot.cb.pores.util.Constants;
 import com.networknt.schema.JsonSchema;
 import com.networknt.schema.JsonSchemaFactory;
@@ -24,15 +28,22 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -46,9 +57,16 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
     @Autowired
     private CacheService cacheService;
     @Autowired
+    private IndexVersionService indexVersionService;
+    @Autowired
+    private SingleFlight singleFlight;
+    @Autowired
     private ObjectMapper objectMapper;
     private Logger logger = LoggerFactory.getLogger(ContentPartnerServiceImpl.class);
 
+    @Value("${read.batch.max.size}")
+    private int readBatchMaxSize;
+
     @Override
     public CustomResponse createOrUpdate(JsonNode partnerDetails) {
         CustomResponse response = new CustomResponse();
@@ -70,7 +88,8 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
                 jsonNode.set(Constants.CONTENT_PROVIDER_ID, new TextNode(saveJsonEntity.getId()));
                 jsonNode.setAll((ObjectNode) saveJsonEntity.getData());
                 Map<String, Object> map = objectMapper.convertValue(jsonNode, Map.class);
-                esUtilService.addDocument(Constants.INDEX_NAME, Constants.INDEX_TYPE, id, map);
+                esUtilService.addDocument(Constants.CONTENT_PARTNER_INDEX_NAME, Constants.INDEX_TYPE, id, map);
+                indexVersionService.bump(Constants.CONTENT_PARTNER_INDEX_NAME);
                 cacheService.putCache(jsonNodeEntity.getId(), jsonNode);
                 log.info("Content partner created");
                 response.setMessage(Constants.SUCCESSFULLY_CREATED);
@@ -89,7 +108,8 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
                                 objectMapper.convertValue(updateJsonEntity.getData(), new TypeReference<Map<String, Object>>() {
                                 });
                         updateJsonEntity.setId(exitingId);
-                        esUtilService.updateDocument(Constants.INDEX_NAME, Constants.INDEX_TYPE, exitingId, jsonMap);
+                        esUtilService.updateDocument(Constants.CONTENT_PARTNER_INDEX_NAME, Constants.INDEX_TYPE, exitingId, jsonMap);
+                        indexVersionService.bump(Constants.CONTENT_PARTNER_INDEX_NAME);
                         cacheService.putCache(exitingId, updateJsonEntity);
                         log.info("updated the content partner");
                         response.setMessage(Constants.SUCCESSFULLY_UPDATED);
@@ -115,18 +135,22 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
             return response;
         }
         try {
-            String cachedJson = cacheService.getCache(id);
-            if (StringUtils.isNotEmpty(cachedJson)) {
+            JsonNode cachedJson = cacheService.getCache(id);
+            if (cachedJson != null) {
                 log.info("Record coming from redis cache");
                 response
                         .getResult()
-                        .put(Constants.RESULT, objectMapper.readValue(cachedJson, new TypeReference<Object>() {
+                        .put(Constants.RESULT, objectMapper.convertValue(cachedJson, new TypeReference<Object>() {
                         }));
             } else {
-                Optional<ContentPartnerEntity> entityOptional = entityRepository.findById(id);
+                // Concurrent misses for the same partner share one query and one cache write
+                Optional<ContentPartnerEntity> entityOptional = singleFlight.execute("content_partner_read_" + id, () -> {
+                    Optional<ContentPartnerEntity> loaded = entityRepository.findById(id);
+                    loaded.ifPresent(entity -> cacheService.putCache(id, entity.getData()));
+                    return loaded;
+                });
                 if (entityOptional.isPresent()) {
                     ContentPartnerEntity entity = entityOptional.get();
-                    cacheService.putCache(id, entity.getData());
                     log.info("Record coming from postgres db");
                     response
                             .getResult()
@@ -145,6 +169,44 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
         return response;
     }
 
+    @Override
+    public CustomResponse read(List<String> ids) {
+        log.info("ContentPartnerServiceImpl::read: reading {} content partners", ids == null ? 0 : ids.size());
+        if (ids == null || ids.isEmpty() || ids.size() > readBatchMaxSize) {
+            throw new CustomException(Constants.ERROR,
+                    "Batch read needs between 1 and " + readBatchMaxSize + " ids", HttpStatus.BAD_REQUEST);
+        }
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        CustomResponse response = new CustomResponse();
+        try {
+            Map<String, JsonNode> cachedJson = cacheService.getCachesOrLoad(uniqueIds, missingIds -> {
+                Map<String, JsonNode> loaded = new HashMap<>();
+                entityRepository.findAllById(missingIds)
+                        .forEach(entity -> loaded.put(entity.getId(), entity.getData()));
+                log.info("{} of {} content partners coming from postgres db", loaded.size(), missingIds.size());
+                return loaded;
+            });
+            List<Object> partners = new ArrayList<>();
+            List<String> notFoundIds = new ArrayList<>();
+            for (String id : uniqueIds) {
+                JsonNode json = cachedJson.get(id);
+                if (json == null) {
+                    notFoundIds.add(id);
+                } else {
+                    partners.add(objectMapper.convertValue(json, new TypeReference<Object>() {
+                    }));
+                }
+            }
+            response.getResult().put(Constants.RESULT, partners);
+            response.getResult().put(Constants.NOT_FOUND_IDS, notFoundIds);
+            createSuccessResponse(response);
+        } catch (Exception e) {
+            logger.error("error while processing", e);
+            throw new CustomException(Constants.ERROR, "error while processing", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return response;
+    }
+
     @Override
     public CustomResponse searchEntity(SearchCriteria searchCriteria) {
         log.info("ContentPartnerServiceImpl::searchEntity:searching the content partner");
@@ -160,15 +222,87 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
         }
         try {
             SearchResult searchResult =
-                    esUtilService.searchDocuments(Constants.INDEX_NAME, searchCriteria);
+                    esUtilService.searchDocuments(Constants.CONTENT_PARTNER_INDEX_NAME, searchCriteria);
             response.getResult().put(Constants.RESULT, searchResult);
             createSuccessResponse(response);
             return response;
         } catch (Exception e) {
             logger.error("Error while processing to search", e);
-            createErrorResponse(response, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR, Constants.FAILED_CONST);
+            createErrorResponse(response, e.getMessage(), AsyncResponseUtil.errorStatus(e), Constants.FAILED_CONST);
+            return response;
+        }
+    }
+
+    @Override
+    public CompletableFuture<CustomResponse> searchEntityAsync(SearchCriteria searchCriteria) {
+        log.info("ContentPartnerServiceImpl::searchEntityAsync:searching the content partner");
+        String searchString = searchCriteria.getSearchString();
+        CustomResponse response = new CustomResponse();
+        if (searchString != null && searchString.length() < 2) {
+            createErrorResponse(
+                    response,
+                    "Minimum 3 characters are required to search",
+                    HttpStatus.BAD_REQUEST,
+                    Constants.FAILED_CONST);
+            return CompletableFuture.completedFuture(response);
+        }
+        CompletableFuture<SearchResult> searchFuture =
+                esUtilService.searchDocumentsAsync(Constants.CONTENT_PARTNER_INDEX_NAME, searchCriteria);
+        return AsyncResponseUtil.propagateCancellation(searchFuture.handle((searchResult, e) -> {
+            if (e != null) {
+                logger.error("Error while processing to search", e);
+                createErrorResponse(response, e.getMessage(), AsyncResponseUtil.errorStatus(e), Constants.FAILED_CONST);
+                return response;
+            }
+            response.getResult().put(Constants.RESULT, searchResult);
+            createSuccessResponse(response);
             return response;
+        }), searchFuture);
+    }
+
+    @Override
+    public CompletableFuture<CustomResponse> searchEntityBatchAsync(List<SearchCriteria> searchCriteriaList) {
+        log.info("ContentPartnerServiceImpl::searchEntityBatchAsync:searching the content partners");
+        CustomResponse response = new CustomResponse();
+        if (searchCriteriaList == null || searchCriteriaList.isEmpty()) {
+            createErrorResponse(response, "At least one search criteria is required",
+                    HttpStatus.BAD_REQUEST, Constants.FAILED_CONST);
+            return CompletableFuture.completedFuture(response);
+        }
+        BatchSearchResult[] searchResults = new BatchSearchResult[searchCriteriaList.size()];
+        List<SearchCriteria> pendingCriteria = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < searchCriteriaList.size(); i++) {
+            SearchCriteria searchCriteria = searchCriteriaList.get(i);
+            if (searchCriteria != null && searchCriteria.getSearchString() != null
+                    && searchCriteria.getSearchString().length() < 2) {
+                searchResults[i] = BatchSearchResult.failure(HttpStatus.BAD_REQUEST.value(),
+                        "Minimum 3 characters are required to search");
+            } else {
+                pendingCriteria.add(searchCriteria);
+                positions.add(i);
+            }
         }
+        if (pendingCriteria.isEmpty()) {
+            response.getResult().put(Constants.RESULT, Arrays.asList(searchResults));
+            createSuccessResponse(response);
+            return CompletableFuture.completedFuture(response);
+        }
+        CompletableFuture<List<BatchSearchResult>> searchFuture =
+                esUtilService.searchDocumentsBatchAsync(Constants.CONTENT_PARTNER_INDEX_NAME, pendingCriteria);
+        return AsyncResponseUtil.propagateCancellation(searchFuture.handle((batchResults, e) -> {
+            if (e != null) {
+                logger.error("Error while processing batch search", e);
+                createErrorResponse(response, e.getMessage(), AsyncResponseUtil.errorStatus(e), Constants.FAILED_CONST);
+                return response;
+            }
+            for (int i = 0; i < batchResults.size(); i++) {
+                searchResults[positions.get(i)] = batchResults.get(i);
+            }
+            response.getResult().put(Constants.RESULT, Arrays.asList(searchResults));
+            createSuccessResponse(response);
+            return response;
+        }), searchFuture);
     }
 
     @Override
@@ -188,7 +322,8 @@ public class ContentPartnerServiceImpl implements ContentPartnerService {
                         josnEntity.setUpdatedOn(currentTime);
                         ContentPartnerEntity updateJsonEntity = entityRepository.save(josnEntity);
                         Map<String, Object> map = objectMapper.convertValue(data, Map.class);
-                        esUtilService.addDocument(Constants.INDEX_NAME, Constants.INDEX_TYPE, id, map);
+                        esUtilService.addDocument(Constants.CONTENT_PARTNER_INDEX_NAME, Constants.INDEX_TYPE, id, map);
+                        indexVersionService.bump(Constants.CONTENT_PARTNER_INDEX_NAME);
                         cacheService.putCache(id, data);
                         return Constants.DELETED_SUCCESSFULLY;
                     } else
@@ -3,8 +3,12 @@ package com.igot.cb.demand.controller;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.igot.cb.pores.dto.CustomResponse;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import com.igot.cb.pores.elasticsearch.service.RequestsPerSecond;
 import com.igot.cb.demand.service.DemandService;
+import com.igot.cb.pores.util.AsyncResponseUtil;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,7 +17,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 @RequestMapping("/demand")
@@ -21,6 +27,9 @@ public class DemandController {
   @Autowired
   private DemandService demandService;
 
+  @Value("${elastic.search.timeout.ms}")
+  private long searchTimeoutMs;
+
   @PostMapping("/create")
   public ResponseEntity<CustomResponse> create(@RequestBody JsonNode demandsDetails) {
     CustomResponse response = demandService.createDemand(demandsDetails);
@@ -32,18 +41,42 @@ public class DemandController {
     CustomResponse response = demandService.readDemand(id);
     return new ResponseEntity<>(response, HttpStatus.OK);
   }
-  @PostMapping("/search")
-  public ResponseEntity<?> search(@RequestBody SearchCriteria searchCriteria) {
-    CustomResponse response = demandService.searchDemand(searchCriteria);
+  @PostMapping("/read")
+  public ResponseEntity<CustomResponse> read(@RequestBody List<String> ids) {
+    CustomResponse response = demandService.readDemands(ids);
     return new ResponseEntity<>(response, response.getResponseCode());
   }
 
+  @PostMapping("/search")
+  public DeferredResult<ResponseEntity<CustomResponse>> search(
+      @RequestBody SearchCriteria searchCriteria) {
+    return AsyncResponseUtil.toDeferredResult(demandService.searchDemandAsync(searchCriteria),
+        searchTimeoutMs);
+  }
+
+  @PostMapping("/search/batch")
+  public DeferredResult<ResponseEntity<CustomResponse>> searchBatch(
+      @RequestBody List<SearchCriteria> searchCriteriaList) {
+    return AsyncResponseUtil.toDeferredResult(
+        demandService.searchDemandBatchAsync(searchCriteriaList), searchTimeoutMs);
+  }
+
   @DeleteMapping("/delete/{id}")
   public ResponseEntity<String> delete(@PathVariable String id) {
     String response = demandService.delete(id);
     return new ResponseEntity<>(response, HttpStatus.OK);
   }
 
+  @DeleteMapping("/purge")
+  public ResponseEntity<CustomResponse> purgeInactive(
+      @RequestParam(required = false) Float requestsPerSecond) {
+    if (requestsPerSecond != null) {
+      RequestsPerSecond.validate(requestsPerSecond);
+    }
+    CustomResponse response = demandService.purgeInactiveDemands(requestsPerSecond);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+
   @PostMapping("/interest/create")
   public ResponseEntity<CustomResponse> createInterest(@RequestBody JsonNode demandsDetails) {
     CustomResponse response = demandService.updateDemand(demandsDetails);
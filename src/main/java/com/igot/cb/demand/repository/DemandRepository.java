@@ -1,10 +1,23 @@
 package com.igot.cb.demand.repository;
 
 import com.igot.cb.demand.entity.DemandEntity;
+import java.sql.Timestamp;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface DemandRepository extends JpaRepository<DemandEntity, String> {
 
+  @Query(value = "SELECT max(demand_id) FROM (SELECT demand_id, ntile(:partitions) OVER (ORDER BY demand_id) AS bucket FROM demands) partitioned GROUP BY bucket ORDER BY bucket", nativeQuery = true)
+  List<String> findPartitionUpperBounds(@Param("partitions") int partitions);
+
+  List<DemandEntity> findByDemandIdGreaterThanAndDemandIdLessThanEqualOrderByDemandIdAsc(
+      String afterId, String upperId, Pageable pageable);
+
+  List<DemandEntity> findByUpdatedOnGreaterThanEqualAndDemandIdGreaterThanOrderByDemandIdAsc(
+      Timestamp since, String afterId, Pageable pageable);
 }
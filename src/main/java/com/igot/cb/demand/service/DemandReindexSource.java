@@ -0,0 +1,73 @@
+package com.igot.cb.demand.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.igot.cb.demand.entity.DemandEntity;
+import com.igot.cb.demand.repository.DemandRepository;
+import com.igot.cb.pores.elasticsearch.reindex.ReindexSource;
+import com.igot.cb.pores.util.Constants;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the demands table for the reindex job, building documents the way
+ * {@link DemandServiceImpl} indexes them.
+ */
+@Component
+public class DemandReindexSource implements ReindexSource {
+
+  @Autowired
+  private DemandRepository demandRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Override
+  public String getName() {
+    return "demands";
+  }
+
+  @Override
+  public String getIndexName() {
+    return Constants.INDEX_NAME;
+  }
+
+  @Override
+  public List<String> findPartitionUpperBounds(int partitions) {
+    return demandRepository.findPartitionUpperBounds(partitions);
+  }
+
+  @Override
+  public List<ReindexDocument> readPage(String afterKey, String upperKey, int pageSize) {
+    return toDocuments(demandRepository
+        .findByDemandIdGreaterThanAndDemandIdLessThanEqualOrderByDemandIdAsc(afterKey, upperKey,
+            PageRequest.of(0, pageSize)));
+  }
+
+  @Override
+  public List<ReindexDocument> readUpdatedSince(Timestamp since, String afterKey, int pageSize) {
+    return toDocuments(demandRepository
+        .findByUpdatedOnGreaterThanEqualAndDemandIdGreaterThanOrderByDemandIdAsc(since, afterKey,
+            PageRequest.of(0, pageSize)));
+  }
+
+  private List<ReindexDocument> toDocuments(List<DemandEntity> entities) {
+    List<ReindexDocument> documents = new ArrayList<>(entities.size());
+    for (DemandEntity entity : entities) {
+      ObjectNode jsonNode = objectMapper.createObjectNode();
+      jsonNode.set(Constants.DEMAND_ID, new TextNode(entity.getDemandId()));
+      if (entity.getData() instanceof ObjectNode) {
+        jsonNode.setAll((ObjectNode) entity.getData());
+      }
+      documents.add(new ReindexDocument(entity.getDemandId(),
+          objectMapper.convertValue(jsonNode, Map.class)));
+    }
+    return documents;
+  }
+}
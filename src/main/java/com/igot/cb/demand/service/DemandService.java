@@ -3,15 +3,25 @@ package com.igot.cb.demand.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.igot.cb.pores.dto.CustomResponse;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface DemandService {
   CustomResponse createDemand(JsonNode demandDetails);
 
   CustomResponse readDemand(String id);
 
+  CustomResponse readDemands(List<String> ids);
+
   CustomResponse searchDemand(SearchCriteria searchCriteria);
 
+  CompletableFuture<CustomResponse> searchDemandAsync(SearchCriteria searchCriteria);
+
+  CompletableFuture<CustomResponse> searchDemandBatchAsync(List<SearchCriteria> searchCriteriaList);
+
   String delete(String id);
 
   CustomResponse updateDemand(JsonNode demandsDetails);
+
+  CustomResponse purgeInactiveDemands(Float requestsPerSecond);
 }
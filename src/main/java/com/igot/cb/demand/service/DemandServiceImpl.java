@@ -1,8 +1,5 @@
 package com.igot.cb.demand.service;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,33 +9,44 @@ import com.fasterxml.jackson.databind.node.TextNode;
 import com.igot.cb.demand.entity.DemandEntity;
 import com.igot.cb.demand.repository.DemandRepository;
 import com.igot.cb.pores.cache.CacheService;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.cache.SingleFlight;
 import com.igot.cb.pores.dto.CustomResponse;
 import com.igot.cb.pores.dto.RespParam;
+import com.igot.cb.pores.elasticsearch.cache.SearchResultCache;
+import com.igot.cb.pores.elasticsearch.dto.BatchSearchResult;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
 import com.igot.cb.pores.elasticsearch.dto.SearchResult;
 import com.igot.cb.pores.elasticsearch.service.EsUtilService;
 import com.igot.cb.pores.exceptions.CustomException;
+import com.igot.cb.pores.util.AsyncResponseUtil;
 import com.igot.cb.pores.util.Constants;
 import com.networknt.schema.JsonSchema;
 import com.networknt.schema.JsonSchemaFactory;
 import com.networknt.schema.ValidationMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -52,13 +60,20 @@ public class DemandServiceImpl implements DemandService {
     @Autowired
     private CacheService cacheService;
     @Autowired
+    private IndexVersionService indexVersionService;
+    @Autowired
     private ObjectMapper objectMapper;
     @Autowired
-    private RedisTemplate<String, SearchResult> redisTemplate;
+    private SearchResultCache searchResultCache;
+    @Autowired
+    private SingleFlight singleFlight;
     private Logger logger = LoggerFactory.getLogger(DemandServiceImpl.class);
 
-    @Value("${search.result.redis.ttl}")
-    private long searchResultRedisTtl;
+    @Value("${read.batch.max.size}")
+    private int readBatchMaxSize;
+
+    @Value("${elastic.search.batch.max.size}")
+    private int batchSearchMaxSize;
 
     @Override
     public CustomResponse createDemand(JsonNode demandDetails) {
@@ -90,6 +105,7 @@ public class DemandServiceImpl implements DemandService {
 
             Map<String, Object> map = objectMapper.convertValue(jsonNode, Map.class);
             esUtilService.addDocument(Constants.INDEX_NAME, Constants.INDEX_TYPE, id, map);
+            indexVersionService.bump(Constants.INDEX_NAME);
 
             cacheService.putCache(jsonNodeEntity.getDemandId(), jsonNode);
             log.info("demand created");
@@ -116,19 +132,23 @@ public class DemandServiceImpl implements DemandService {
             return response;
         }
         try {
-            String cachedJson = cacheService.getCache(id);
-            if (StringUtils.isNotEmpty(cachedJson)) {
+            JsonNode cachedJson = cacheService.getCache(id);
+            if (cachedJson != null) {
                 log.info("Record coming from redis cache");
                 response.setMessage(Constants.SUCCESSFULLY_READING);
                 response
                         .getResult()
-                        .put(Constants.RESULT, objectMapper.readValue(cachedJson, new TypeReference<Object>() {
+                        .put(Constants.RESULT, objectMapper.convertValue(cachedJson, new TypeReference<Object>() {
                         }));
             } else {
-                Optional<DemandEntity> entityOptional = demandRepository.findById(id);
+                // Concurrent misses for the same demand share one query and one cache write
+                Optional<DemandEntity> entityOptional = singleFlight.execute("demand_read_" + id, () -> {
+                    Optional<DemandEntity> loaded = demandRepository.findById(id);
+                    loaded.ifPresent(demandEntity -> cacheService.putCache(id, demandEntity.getData()));
+                    return loaded;
+                });
                 if (entityOptional.isPresent()) {
                     DemandEntity demandEntity = entityOptional.get();
-                    cacheService.putCache(id, demandEntity.getData());
                     log.info("Record coming from postgres db");
                     response.setMessage(Constants.SUCCESSFULLY_READING);
                     response
@@ -150,11 +170,51 @@ public class DemandServiceImpl implements DemandService {
         return response;
     }
 
+    @Override
+    public CustomResponse readDemands(List<String> ids) {
+        log.info("DemandServiceImpl::readDemands: reading {} demands", ids == null ? 0 : ids.size());
+        if (ids == null || ids.isEmpty() || ids.size() > readBatchMaxSize) {
+            throw new CustomException(Constants.ERROR,
+                    "Batch read needs between 1 and " + readBatchMaxSize + " ids", HttpStatus.BAD_REQUEST);
+        }
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        CustomResponse response = new CustomResponse();
+        try {
+            Map<String, JsonNode> cachedJson = cacheService.getCachesOrLoad(uniqueIds, missingIds -> {
+                Map<String, JsonNode> loaded = new HashMap<>();
+                demandRepository.findAllById(missingIds)
+                        .forEach(demandEntity -> loaded.put(demandEntity.getDemandId(), demandEntity.getData()));
+                log.info("{} of {} demands coming from postgres db", loaded.size(), missingIds.size());
+                return loaded;
+            });
+            List<Object> demands = new ArrayList<>();
+            List<String> notFoundIds = new ArrayList<>();
+            for (String id : uniqueIds) {
+                JsonNode json = cachedJson.get(id);
+                if (json == null) {
+                    notFoundIds.add(id);
+                } else {
+                    demands.add(objectMapper.convertValue(json, new TypeReference<Object>() {
+                    }));
+                }
+            }
+            response.setMessage(Constants.SUCCESSFULLY_READING);
+            response.getResult().put(Constants.RESULT, demands);
+            response.getResult().put(Constants.NOT_FOUND_IDS, notFoundIds);
+            createSuccessResponse(response);
+        } catch (Exception e) {
+            logger.error("Error while reading demands {}: {}", uniqueIds, e.getMessage(), e);
+            throw new CustomException(Constants.ERROR, "error while processing", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return response;
+    }
+
     @Override
     public CustomResponse searchDemand(SearchCriteria searchCriteria) {
         log.info("DemandServiceImpl::searchDemand");
         CustomResponse response = new CustomResponse();
-        SearchResult searchResult = redisTemplate.opsForValue().get(generateRedisJwtTokenKey(searchCriteria));
+        String cacheKey = searchResultCache.key(Constants.INDEX_NAME, searchCriteria);
+        SearchResult searchResult = searchResultCache.get(cacheKey);
         if (searchResult != null) {
             log.info("SidJobServiceImpl::searchJobs: job search result fetched from redis");
             response.getResult().put(Constants.RESULT, searchResult);
@@ -171,30 +231,106 @@ public class DemandServiceImpl implements DemandService {
         try {
             searchResult =
                     esUtilService.searchDocuments(Constants.INDEX_NAME, searchCriteria);
+            searchResultCache.put(cacheKey, searchResult);
             response.getResult().put(Constants.RESULT, searchResult);
             createSuccessResponse(response);
             return response;
         } catch (Exception e) {
-            createErrorResponse(response, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR, Constants.FAILED_CONST);
-            redisTemplate.opsForValue()
-                    .set(generateRedisJwtTokenKey(searchCriteria), searchResult, searchResultRedisTtl,
-                            TimeUnit.SECONDS);
+            createErrorResponse(response, e.getMessage(), AsyncResponseUtil.errorStatus(e), Constants.FAILED_CONST);
             return response;
         }
     }
 
-    public String generateRedisJwtTokenKey(Object requestPayload) {
-        if (requestPayload != null) {
-            try {
-                String reqJsonString = objectMapper.writeValueAsString(requestPayload);
-                return JWT.create()
-                        .withClaim(Constants.REQUEST_PAYLOAD, reqJsonString)
-                        .sign(Algorithm.HMAC256(Constants.JWT_SECRET_KEY));
-            } catch (JsonProcessingException e) {
-                logger.error("Error occurred while converting json object to json string", e);
+    @Override
+    public CompletableFuture<CustomResponse> searchDemandAsync(SearchCriteria searchCriteria) {
+        log.info("DemandServiceImpl::searchDemandAsync");
+        CustomResponse response = new CustomResponse();
+        // One version read serves both the result cache key and the facet cache
+        long indexVersion = indexVersionService.currentVersion(Constants.INDEX_NAME);
+        String cacheKey = searchResultCache.key(Constants.INDEX_NAME, searchCriteria, indexVersion);
+        SearchResult cachedResult = searchResultCache.get(cacheKey);
+        if (cachedResult != null) {
+            log.info("DemandServiceImpl::searchDemandAsync: demand search result fetched from redis");
+            response.getResult().put(Constants.RESULT, cachedResult);
+            createSuccessResponse(response);
+            return CompletableFuture.completedFuture(response);
+        }
+        String searchString = searchCriteria.getSearchString();
+        if (searchString != null && searchString.length() < 2) {
+            createErrorResponse(response, "Minimum 3 characters are required to search",
+                    HttpStatus.BAD_REQUEST,
+                    Constants.FAILED_CONST);
+            return CompletableFuture.completedFuture(response);
+        }
+        CompletableFuture<SearchResult> searchFuture =
+                esUtilService.searchDocumentsAsync(Constants.INDEX_NAME, searchCriteria, indexVersion);
+        return AsyncResponseUtil.propagateCancellation(searchFuture.handle((searchResult, e) -> {
+            if (e != null) {
+                logger.error("Error while processing to search", e);
+                createErrorResponse(response, e.getMessage(), AsyncResponseUtil.errorStatus(e), Constants.FAILED_CONST);
+                return response;
+            }
+            searchResultCache.putAsync(cacheKey, searchResult);
+            response.getResult().put(Constants.RESULT, searchResult);
+            createSuccessResponse(response);
+            return response;
+        }), searchFuture);
+    }
+
+    @Override
+    public CompletableFuture<CustomResponse> searchDemandBatchAsync(List<SearchCriteria> searchCriteriaList) {
+        log.info("DemandServiceImpl::searchDemandBatchAsync");
+        CustomResponse response = new CustomResponse();
+        // Checked before any cache work, which would otherwise run for the whole list
+        if (searchCriteriaList == null || searchCriteriaList.isEmpty()
+                || searchCriteriaList.size() > batchSearchMaxSize) {
+            createErrorResponse(response,
+                    "Batch search needs between 1 and " + batchSearchMaxSize + " search criteria",
+                    HttpStatus.BAD_REQUEST, Constants.FAILED_CONST);
+            return CompletableFuture.completedFuture(response);
+        }
+        BatchSearchResult[] searchResults = new BatchSearchResult[searchCriteriaList.size()];
+        List<String> cacheKeys = searchResultCache.keys(Constants.INDEX_NAME, searchCriteriaList);
+        List<SearchResult> cachedResults = searchResultCache.multiGet(cacheKeys);
+        List<SearchCriteria> pendingCriteria = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < searchCriteriaList.size(); i++) {
+            SearchCriteria searchCriteria = searchCriteriaList.get(i);
+            if (cachedResults.get(i) != null) {
+                searchResults[i] = BatchSearchResult.success(cachedResults.get(i));
+            } else if (searchCriteria != null && searchCriteria.getSearchString() != null
+                    && searchCriteria.getSearchString().length() < 2) {
+                searchResults[i] = BatchSearchResult.failure(HttpStatus.BAD_REQUEST.value(),
+                        "Minimum 3 characters are required to search");
+            } else {
+                pendingCriteria.add(searchCriteria);
+                positions.add(i);
             }
         }
-        return "";
+        if (pendingCriteria.isEmpty()) {
+            response.getResult().put(Constants.RESULT, Arrays.asList(searchResults));
+            createSuccessResponse(response);
+            return CompletableFuture.completedFuture(response);
+        }
+        CompletableFuture<List<BatchSearchResult>> searchFuture =
+                esUtilService.searchDocumentsBatchAsync(Constants.INDEX_NAME, pendingCriteria);
+        return AsyncResponseUtil.propagateCancellation(searchFuture.handle((batchResults, e) -> {
+            if (e != null) {
+                logger.error("Error while processing batch search", e);
+                createErrorResponse(response, e.getMessage(), AsyncResponseUtil.errorStatus(e), Constants.FAILED_CONST);
+                return response;
+            }
+            for (int i = 0; i < batchResults.size(); i++) {
+                BatchSearchResult batchResult = batchResults.get(i);
+                searchResults[positions.get(i)] = batchResult;
+                if (batchResult.getResult() != null) {
+                    searchResultCache.putAsync(cacheKeys.get(positions.get(i)), batchResult.getResult());
+                }
+            }
+            response.getResult().put(Constants.RESULT, Arrays.asList(searchResults));
+            createSuccessResponse(response);
+            return response;
+        }), searchFuture);
     }
 
     @Override
@@ -215,6 +351,7 @@ public class DemandServiceImpl implements DemandService {
                         DemandEntity updateJsonEntity = demandRepository.save(josnEntity);
                         Map<String, Object> map = objectMapper.convertValue(data, Map.class);
                         esUtilService.addDocument(Constants.INDEX_NAME, Constants.INDEX_TYPE, id, map);
+                        indexVersionService.bump(Constants.INDEX_NAME);
                         cacheService.putCache(id, data);
 
                         logger.debug("Demand details deleted successfully");
@@ -249,6 +386,7 @@ public class DemandServiceImpl implements DemandService {
 
             Map<String, Object> map = objectMapper.convertValue(jsonNode, Map.class);
             esUtilService.addDocument(Constants.INDEX_NAME, Constants.INDEX_TYPE, fetchedEntity.getDemandId(), map);
+            indexVersionService.bump(Constants.INDEX_NAME);
 
             cacheService.putCache(fetchedEntity.getDemandId(), jsonNode);
             log.info("interest captured");
@@ -262,6 +400,23 @@ public class DemandServiceImpl implements DemandService {
 
     }
 
+    @Override
+    public CustomResponse purgeInactiveDemands(Float requestsPerSecond) {
+        log.info("DemandServiceImpl::purgeInactiveDemands");
+        CustomResponse response = new CustomResponse();
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery(Constants.IS_ACTIVE, false))
+                .filter(QueryBuilders.existsQuery(Constants.DEMAND_ID)));
+        String taskId = requestsPerSecond == null
+                ? esUtilService.deleteDocumentsByCriteria(Constants.INDEX_NAME, sourceBuilder)
+                : esUtilService.deleteDocumentsByCriteria(Constants.INDEX_NAME, sourceBuilder, requestsPerSecond);
+        // Bumped again by the delete service once the task has completed
+        indexVersionService.bump(Constants.INDEX_NAME);
+        response.getResult().put(Constants.TASK_ID, taskId);
+        createSuccessResponse(response);
+        return response;
+    }
+
     private void persistInPrimaryDb(DemandEntity fetchedEntity, JsonNode demandsDetails) {
         JsonNode persistUpdatedDemand = fetchedEntity.getData();
         // Retrieve existing interests
@@ -0,0 +1,20 @@
+package com.igot.cb.playlist.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Outcome of enriching a list of content ids: the content read for each id in the order of the
+ * ids, and the reason for every id that could not be read.
+ */
+@Getter
+public class EnrichmentResult {
+
+  private final Map<String, Map<String, Object>> contents = new LinkedHashMap<>();
+  private final Map<String, String> failures = new LinkedHashMap<>();
+
+  public boolean isComplete() {
+    return failures.isEmpty();
+  }
+}
@@ -9,4 +9,6 @@ import org.springframework.stereotype.Repository;
 public interface PlayListRepository extends JpaRepository<PlayListEntity, String> {
 
   PlayListEntity findByOrgId(String orgId);
+
+  PlayListEntity findByOrgIdAndRequestType(String orgId, String requestType);
 }
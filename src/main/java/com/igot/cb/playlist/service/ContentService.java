@@ -13,4 +13,11 @@ public interface ContentService {
 
   public Map<String, Object> readContent(String contentId, List<String> fields);
 
+  /**
+   * Content of every id that could be read, in the order of the ids. Reads the in-process cache
+   * first, then Redis with one MGET and the content search with one call per batch of ids.
+   */
+  public Map<String, Map<String, Object>> readContents(List<String> contentIds,
+      List<String> fields);
+
 }
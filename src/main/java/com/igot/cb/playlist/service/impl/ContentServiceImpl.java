@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.igot.cb.playlist.service.ContentService;
 import com.igot.cb.playlist.util.DataCacheManager;
 import com.igot.cb.playlist.util.RedisCacheMngr;
+import com.igot.cb.pores.cache.SingleFlight;
 import com.igot.cb.pores.util.CbServerProperties;
 import com.igot.cb.pores.util.Constants;
 
@@ -39,6 +40,9 @@ public class ContentServiceImpl implements ContentService {
   @Autowired
   private ObjectMapper mapper;
 
+  @Autowired
+  private SingleFlight singleFlight;
+
   @Override
   public Map<String, Object> readContentFromCache(String contentId, List<String> fields) {
     log.info("ContentServiceImpl::readContentFromCache:entering");
@@ -84,9 +88,148 @@ public class ContentServiceImpl implements ContentService {
     return responseData;
   }
 
+  @Override
+  public Map<String, Map<String, Object>> readContents(List<String> contentIds,
+      List<String> fields) {
+    log.info("ContentServiceImpl::readContents:inside");
+    if (CollectionUtils.isEmpty(fields)) {
+      fields = Arrays.asList(serverConfig.getDefaultContentProperties().split(",", -1));
+    }
+    List<String> ids = new ArrayList<>(new LinkedHashSet<>(contentIds));
+    Map<String, Map<String, Object>> found = new HashMap<>();
+    int fieldCount = fields.size();
+    dataCacheMgr.getContentsFromCache(ids).forEach((contentId, content) -> {
+      // Entries holding fewer fields than requested are read again, as in readContentFromCache
+      if (content.size() >= fieldCount) {
+        found.put(contentId, content);
+      }
+    });
+    List<String> missing = missingIds(ids, found);
+    if (!missing.isEmpty()) {
+      found.putAll(readContentsFromRedis(missing, fields));
+      missing = missingIds(ids, found);
+    }
+    if (!missing.isEmpty()) {
+      found.putAll(searchContents(missing, fields));
+    }
+    Map<String, Map<String, Object>> contents = new LinkedHashMap<>();
+    for (String contentId : ids) {
+      if (found.containsKey(contentId)) {
+        contents.put(contentId, found.get(contentId));
+      }
+    }
+    log.info("ContentServiceImpl::readContents:read {} of {} contents", contents.size(),
+        ids.size());
+    return contents;
+  }
+
+  private List<String> missingIds(List<String> ids, Map<String, Map<String, Object>> found) {
+    List<String> missing = new ArrayList<>();
+    for (String contentId : ids) {
+      if (!found.containsKey(contentId)) {
+        missing.add(contentId);
+      }
+    }
+    return missing;
+  }
+
+  private Map<String, Map<String, Object>> readContentsFromRedis(List<String> contentIds,
+      List<String> fields) {
+    Map<String, Map<String, Object>> loaded = new HashMap<>();
+    List<String> contentStrings = redisCacheMgr.getContentsFromCache(contentIds);
+    if (contentStrings == null) {
+      return loaded;
+    }
+    for (int i = 0; i < contentIds.size(); i++) {
+      if (StringUtils.isBlank(contentStrings.get(i))) {
+        continue;
+      }
+      try {
+        Map<String, Object> contentData = mapper.readValue(contentStrings.get(i),
+            new TypeReference<Map<String, Object>>() {
+            });
+        if (MapUtils.isNotEmpty(contentData)) {
+          loaded.put(contentIds.get(i), projectFields(contentData, fields));
+        }
+      } catch (Exception e) {
+        log.error("Failed to parse content info from redis. Exception: " + e.getMessage(), e);
+      }
+    }
+    dataCacheMgr.putContentsInCache(loaded);
+    return loaded;
+  }
+
+  /**
+   * Reads the contents from the content search, one call per batch of ids. Contents found are
+   * added to the in-process cache only; the Redis content keys belong to the content service.
+   */
+  private Map<String, Map<String, Object>> searchContents(List<String> contentIds,
+      List<String> fields) {
+    Map<String, Map<String, Object>> loaded = new HashMap<>();
+    List<String> searchFields = new ArrayList<>(fields);
+    if (!searchFields.contains(Constants.IDENTIFIER)) {
+      searchFields.add(Constants.IDENTIFIER);
+    }
+    String url = serverConfig.getContentHost() + serverConfig.getContentSearchEndPoint();
+    int batchSize = serverConfig.getContentSearchBatchSize();
+    for (int from = 0; from < contentIds.size(); from += batchSize) {
+      List<String> batch = contentIds.subList(from, Math.min(from + batchSize, contentIds.size()));
+      Map<String, Object> filters = new HashMap<>();
+      filters.put(Constants.IDENTIFIER, batch);
+      Map<String, Object> request = new HashMap<>();
+      request.put(Constants.FILTERS, filters);
+      request.put(Constants.FIELDS, searchFields);
+      request.put(Constants.LIMIT, batch.size());
+      try {
+        Map<String, Object> response = restTemplate.postForObject(url,
+            Collections.singletonMap(Constants.REQUEST, request), Map.class);
+        if (response == null || !Constants.OK.equalsIgnoreCase(
+            (String) response.get(Constants.RESPONSE_CODE))) {
+          log.warn("ContentServiceImpl::searchContents: content search failed for {} ids",
+              batch.size());
+          continue;
+        }
+        Map<String, Object> result = (Map<String, Object>) response.get(Constants.RESULT);
+        List<Map<String, Object>> contents = result != null
+            ? (List<Map<String, Object>>) result.get(Constants.CONTENT) : null;
+        if (contents == null) {
+          continue;
+        }
+        for (Map<String, Object> content : contents) {
+          String contentId = (String) content.get(Constants.IDENTIFIER);
+          if (contentId != null) {
+            loaded.put(contentId, projectFields(content, fields));
+          }
+        }
+      } catch (Exception e) {
+        log.error("ContentServiceImpl::searchContents: content search failed: {}",
+            e.getMessage());
+      }
+    }
+    dataCacheMgr.putContentsInCache(loaded);
+    return loaded;
+  }
+
+  private Map<String, Object> projectFields(Map<String, Object> contentData,
+      List<String> fields) {
+    Map<String, Object> projected = new HashMap<>();
+    for (String field : fields) {
+      if (contentData.containsKey(field)) {
+        projected.put(field, contentData.get(field));
+      }
+    }
+    return projected;
+  }
+
   @Override
   public Map<String, Object> readContent(String contentId, List<String> fields) {
     log.info("ContentServiceImpl::readContent:inside");
+    // Playlist rebuilds read the same content concurrently; share one call to the content service
+    return singleFlight.execute("content_read_" + contentId + "_" + fields,
+        () -> fetchContent(contentId, fields));
+  }
+
+  private Map<String, Object> fetchContent(String contentId, List<String> fields) {
     StringBuilder url = new StringBuilder();
     url.append(serverConfig.getContentHost()).append(serverConfig.getContentReadEndPoint())
         .append("/" + contentId)
@@ -6,26 +6,41 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.igot.cb.playlist.dto.EnrichmentResult;
 import com.igot.cb.playlist.dto.SearchDto;
 import com.igot.cb.playlist.entity.PlayListEntity;
 import com.igot.cb.playlist.repository.PlayListRepository;
 import com.igot.cb.playlist.service.ContentService;
 import com.igot.cb.playlist.service.PlayListSerive;
+import com.igot.cb.playlist.util.ContentEnricher;
 import com.igot.cb.playlist.util.ProjectUtil;
 import com.igot.cb.playlist.util.RedisCacheMngr;
+import com.igot.cb.pores.cache.SingleFlight;
 import com.igot.cb.pores.util.ApiResponse;
 import com.igot.cb.pores.util.CbServerProperties;
 import com.igot.cb.pores.util.Constants;
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +53,8 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class PlayListServiceImpl implements PlayListSerive {
 
+  private static final String EMPTY_CONTENT_ARRAY = "[]";
+
   @Autowired
   private PlayListRepository playListRepository;
 
@@ -59,11 +76,39 @@ public class PlayListServiceImpl implements PlayListSerive {
   @Autowired
   private ContentService contentService;
 
+  @Autowired
+  private ContentEnricher contentEnricher;
+
   @Autowired
   private CbServerProperties cbServerProperties;
 
+  @Value("${playlist.rebuild.threads}")
+  private int rebuildThreads;
+
+  @Value("${playlist.rebuild.timeout.ms}")
+  private long rebuildTimeoutMs;
+
+  @Autowired
+  private SingleFlight singleFlight;
+
   private Logger logger = LoggerFactory.getLogger(getClass().getName());
 
+  private ExecutorService rebuildExecutor;
+
+  @PostConstruct
+  public void init() {
+    rebuildExecutor = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+      Thread thread = new Thread(runnable, "playlist-rebuild");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    rebuildExecutor.shutdownNow();
+  }
+
 
   @Override
   public ApiResponse createPlayList(JsonNode playListDetails) {
@@ -96,17 +141,14 @@ public class PlayListServiceImpl implements PlayListSerive {
       jsonNodeEntity.setIsActive(true);
       playListRepository.save(jsonNodeEntity);
       JsonNode childrenNode = playListDetails.get(Constants.CHILDREN);
-      Map<String, Map<String, Object>> enrichContentMaps = new HashMap<>();
-      enrichContentMaps = fetchContentDetails(childrenNode);
-      ObjectNode enrichedContentJson = objectMapper.createObjectNode();
-      enrichedContentJson.put(Constants.CHILDREN, objectMapper.valueToTree(enrichContentMaps));
-      enrichedContentJson.put(Constants.ID, jsonNodeEntity.getOrgId());
-      persistInRedis(enrichedContentJson, jsonNodeEntity);
+      EnrichmentResult enrichment = fetchContentDetails(childIds(childrenNode));
+      persistInRedis(enrichment.getContents(), jsonNodeEntity);
       response = ProjectUtil.createDefaultResponse(Constants.API_PLAYLIST_CREATE);
       response.put(Constants.RESPONSE, Constants.SUCCESS);
       response.setResponseCode(HttpStatus.OK);
       response.getResult().put(Constants.STATUS, Constants.CREATED);
       response.getResult().put(Constants.ID, playListId);
+      putEnrichmentFailures(response, enrichment);
       log.info("PlayListService::createPlayList:created playList");
       return response;
     } catch (Exception errMsg) {
@@ -118,76 +160,184 @@ public class PlayListServiceImpl implements PlayListSerive {
     }
   }
 
-  private void persistInRedis(ObjectNode enrichedContentJson, PlayListEntity jsonNodeEntity) {
+  /**
+   * Stores the playlist of the org ready to serve: the enriched children as one pre-serialized
+   * JSON array in the org's field of the context hash. Returns the stored array.
+   */
+  private String persistInRedis(Map<String, Map<String, Object>> contents,
+      PlayListEntity jsonNodeEntity) {
     log.info("PlayListService::persistInRedis");
     try {
-      Map<String, Object> map = objectMapper.convertValue(enrichedContentJson,
-          new TypeReference<Map<String, Object>>() {
-          });
-      Map<String, String> fieldValues = new HashMap<>();
-      for (Entry<String, Object> entry : map.entrySet()) {
-        if (entry.getValue() instanceof List) {
-          List<String> list = (List<String>) entry.getValue();
-          String valueAsString = String.join(",", list);
-          fieldValues.put(entry.getKey(), valueAsString);
-        } else {
-          String valueAsString = null;
-          valueAsString = objectMapper.writeValueAsString(entry.getValue());
-          fieldValues.put(entry.getKey(), valueAsString);
-        }
-      }
+      String contentArray = objectMapper.writeValueAsString(contents.values());
       Map<String, String> hsetValues = new HashMap<>();
-      hsetValues.put(jsonNodeEntity.getOrgId(), objectMapper.writeValueAsString(fieldValues));
+      hsetValues.put(jsonNodeEntity.getOrgId(), contentArray);
       redisCacheMngr.hset(
           cbServerProperties.getPlayListRedisKeyMapping().get(jsonNodeEntity.getRequestType()),
           redisInsightIndex, hsetValues);
       log.info("persisted in redis");
+      return contentArray;
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
+  }
 
+  /**
+   * Stores the content array unless the stored value is no longer {@code expected}, the value
+   * the array was derived from. A concurrent update or rebuild changed it in that case, and the
+   * stored value is dropped instead so that the next read rebuilds it from Postgres.
+   */
+  private String persistInRedis(Map<String, Map<String, Object>> contents,
+      PlayListEntity jsonNodeEntity, String expected) {
+    log.info("PlayListService::persistInRedis");
+    try {
+      String contentArray = objectMapper.writeValueAsString(contents.values());
+      if (redisCacheMngr.hreplace(
+          cbServerProperties.getPlayListRedisKeyMapping().get(jsonNodeEntity.getRequestType()),
+          redisInsightIndex, jsonNodeEntity.getOrgId(), expected, contentArray)) {
+        log.info("persisted in redis");
+      } else {
+        log.info("PlayListService::persistInRedis: playList of {} changed meanwhile, dropped",
+            jsonNodeEntity.getOrgId());
+      }
+      return contentArray;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
   }
 
-  private Map<String, Map<String, Object>> fetchContentDetails(JsonNode childrenNode) {
+  /**
+   * Reads all children with one batched read and keeps the live ones, in the order of the
+   * children. Children the batch did not return are read one by one in parallel; those that
+   * still could not be read are reported in the failures of the result.
+   */
+  private EnrichmentResult fetchContentDetails(List<String> childIds) {
     log.info("PlayListService::fetchContentDetails");
-    Map<String, Map<String, Object>> enrichContentMaps = new HashMap<>();
-    if (childrenNode != null && childrenNode.isArray()) {
-      childrenNode.forEach(childNode -> {
-        String childId = childNode.asText();
-        // Call method to fetch details for each child
-        Map<String, Object> contentResponse = contentService.readContentFromCache(childId,
-            new ArrayList<>());
-        if (MapUtils.isNotEmpty(contentResponse)) {
-          if (Constants.LIVE.equalsIgnoreCase((String) contentResponse.get(Constants.STATUS))) {
-            Map<String, Object> enrichContentMap = new HashMap<>();
-            enrichContentMap.put(Constants.NAME, contentResponse.get(Constants.NAME));
-            enrichContentMap.put(Constants.COMPETENCIES_V5,
-                contentResponse.get(Constants.COMPETENCIES_V5));
-            enrichContentMap.put(Constants.AVG_RATING, contentResponse.get(Constants.AVG_RATING));
-            enrichContentMap.put(Constants.IDENTIFIER, contentResponse.get(Constants.IDENTIFIER));
-            enrichContentMap.put(Constants.DESCRIPTION, contentResponse.get(Constants.DESCRIPTION));
-            enrichContentMap.put(Constants.ADDITIONAL_TAGS,
-                contentResponse.get(Constants.ADDITIONAL_TAGS));
-            enrichContentMap.put(Constants.CONTENT_TYPE_KEY,
-                contentResponse.get(Constants.CONTENT_TYPE_KEY));
-            enrichContentMap.put(Constants.PRIMARY_CATEGORY,
-                contentResponse.get(Constants.PRIMARY_CATEGORY));
-            enrichContentMap.put(Constants.DURATION, contentResponse.get(Constants.DURATION));
-            enrichContentMap.put(Constants.COURSE_APP_ICON,
-                contentResponse.get(Constants.COURSE_APP_ICON));
-            enrichContentMap.put(Constants.POSTER_IMAGE,
-                contentResponse.get(Constants.POSTER_IMAGE));
-            enrichContentMap.put(Constants.ORGANISATION,
-                contentResponse.get(Constants.ORGANISATION));
-            enrichContentMap.put(Constants.CREATOR_LOGO,
-                contentResponse.get(Constants.CREATOR_LOGO));
-            enrichContentMaps.put(childId, enrichContentMap);
-          }
-        }
-      });
+    Map<String, Map<String, Object>> contents =
+        contentService.readContents(childIds, new ArrayList<>());
+    List<String> unresolved = new ArrayList<>();
+    for (String childId : childIds) {
+      if (!contents.containsKey(childId)) {
+        unresolved.add(childId);
+      }
+    }
+    EnrichmentResult fallback = contentEnricher.enrich(unresolved,
+        childId -> contentService.readContentFromCache(childId, new ArrayList<>()));
+    EnrichmentResult enrichment = new EnrichmentResult();
+    for (String childId : childIds) {
+      Map<String, Object> content = contents.containsKey(childId) ? contents.get(childId)
+          : fallback.getContents().get(childId);
+      if (content != null) {
+        enrichment.getContents().put(childId, content);
+      }
     }
+    enrichment.getFailures().putAll(fallback.getFailures());
+    enrichment.getContents().entrySet().removeIf(entry ->
+        !Constants.LIVE.equalsIgnoreCase((String) entry.getValue().get(Constants.STATUS)));
+    enrichment.getContents().replaceAll((childId, content) -> toEnrichedContent(content));
     log.info("PlayListService::fetchContentDetails:fetchedContent");
-    return enrichContentMaps;
+    return enrichment;
+  }
+
+  /**
+   * Distinct child ids of the children array, in order.
+   */
+  private List<String> childIds(JsonNode childrenNode) {
+    Set<String> childIds = new LinkedHashSet<>();
+    if (childrenNode != null && childrenNode.isArray()) {
+      childrenNode.forEach(childNode -> childIds.add(childNode.asText()));
+    }
+    return new ArrayList<>(childIds);
+  }
+
+  /**
+   * Applies the changes of an update request to the current children: {@code children} are
+   * appended unless already present, {@code removeChildren} are dropped, and the ids listed in
+   * {@code order} are moved to the front in that order, the others keeping their relative order.
+   */
+  private List<String> applyChildrenDelta(List<String> currentChildIds, JsonNode playListDetails) {
+    Set<String> childIds = new LinkedHashSet<>(currentChildIds);
+    childIds.addAll(childIds(playListDetails.get(Constants.CHILDREN)));
+    childIds.removeAll(childIds(playListDetails.get(Constants.REMOVE_CHILDREN)));
+    Set<String> ordered = new LinkedHashSet<>();
+    for (String childId : childIds(playListDetails.get(Constants.ORDER))) {
+      if (childIds.contains(childId)) {
+        ordered.add(childId);
+      }
+    }
+    ordered.addAll(childIds);
+    return new ArrayList<>(ordered);
+  }
+
+  /**
+   * Updates the stored content array to the given children, enriching only children that were
+   * not in the playlist before this update. Earlier children keep their stored content; those
+   * missing from the stored array, because they were not live or failed to enrich, stay out
+   * until the next rebuild. Without a stored array in the current layout the whole playlist is
+   * enriched. The read, merge and write are not atomic; a concurrent change of the stored array
+   * makes the write drop it rather than overwrite the other change.
+   */
+  private EnrichmentResult patchInRedis(List<String> previousChildIds, List<String> childIds,
+      PlayListEntity playListEntity) throws IOException {
+    String stored = redisCacheMngr.hgetValue(
+        cbServerProperties.getPlayListRedisKeyMapping().get(playListEntity.getRequestType()),
+        redisInsightIndex, playListEntity.getOrgId());
+    Map<String, Map<String, Object>> known = new HashMap<>();
+    Set<String> previous = new HashSet<>();
+    if (isContentArray(stored)) {
+      previous.addAll(previousChildIds);
+      List<Map<String, Object>> storedContents = objectMapper.readValue(stored,
+          new TypeReference<List<Map<String, Object>>>() {
+          });
+      for (Map<String, Object> content : storedContents) {
+        known.put((String) content.get(Constants.IDENTIFIER), content);
+      }
+    }
+    List<String> addedChildIds = new ArrayList<>();
+    for (String childId : childIds) {
+      if (!known.containsKey(childId) && !previous.contains(childId)) {
+        addedChildIds.add(childId);
+      }
+    }
+    log.info("PlayListService::patchInRedis: enriching {} of {} children", addedChildIds.size(),
+        childIds.size());
+    EnrichmentResult added = fetchContentDetails(addedChildIds);
+    EnrichmentResult enrichment = new EnrichmentResult();
+    for (String childId : childIds) {
+      Map<String, Object> content = known.containsKey(childId) ? known.get(childId)
+          : added.getContents().get(childId);
+      if (content != null) {
+        enrichment.getContents().put(childId, content);
+      }
+    }
+    enrichment.getFailures().putAll(added.getFailures());
+    persistInRedis(enrichment.getContents(), playListEntity, stored);
+    return enrichment;
+  }
+
+  private Map<String, Object> toEnrichedContent(Map<String, Object> contentResponse) {
+    Map<String, Object> enrichContentMap = new HashMap<>();
+    enrichContentMap.put(Constants.NAME, contentResponse.get(Constants.NAME));
+    enrichContentMap.put(Constants.COMPETENCIES_V5,
+        contentResponse.get(Constants.COMPETENCIES_V5));
+    enrichContentMap.put(Constants.AVG_RATING, contentResponse.get(Constants.AVG_RATING));
+    enrichContentMap.put(Constants.IDENTIFIER, contentResponse.get(Constants.IDENTIFIER));
+    enrichContentMap.put(Constants.DESCRIPTION, contentResponse.get(Constants.DESCRIPTION));
+    enrichContentMap.put(Constants.ADDITIONAL_TAGS,
+        contentResponse.get(Constants.ADDITIONAL_TAGS));
+    enrichContentMap.put(Constants.CONTENT_TYPE_KEY,
+        contentResponse.get(Constants.CONTENT_TYPE_KEY));
+    enrichContentMap.put(Constants.PRIMARY_CATEGORY,
+        contentResponse.get(Constants.PRIMARY_CATEGORY));
+    enrichContentMap.put(Constants.DURATION, contentResponse.get(Constants.DURATION));
+    enrichContentMap.put(Constants.COURSE_APP_ICON,
+        contentResponse.get(Constants.COURSE_APP_ICON));
+    enrichContentMap.put(Constants.POSTER_IMAGE,
+        contentResponse.get(Constants.POSTER_IMAGE));
+    enrichContentMap.put(Constants.ORGANISATION,
+        contentResponse.get(Constants.ORGANISATION));
+    enrichContentMap.put(Constants.CREATOR_LOGO,
+        contentResponse.get(Constants.CREATOR_LOGO));
+    return enrichContentMap;
   }
 
   @Override
@@ -208,52 +358,64 @@ public class PlayListServiceImpl implements PlayListSerive {
     HashMap<String, Object> filters = (HashMap<String, Object>) request.get(Constants.FILTERS);
     String orgId = (String) filters.get(Constants.ORGANISATION);
     List<String> contextTypes = (List<String>) filters.get(Constants.REQUEST_TYPE);
-    String playListStringFromRedis = "";
     try {
-      for (String contextType : contextTypes) {
-        playListStringFromRedis =
-            redisCacheMngr.hget(cbServerProperties.getPlayListRedisKeyMapping().get(contextType),
-                redisInsightIndex, orgId).toString();
-        log.info("Cached PlayList for orgId: " + orgId);
-
+      Map<String, RawValue> playLists = new LinkedHashMap<>();
+      List<String> knownContextTypes = new ArrayList<>();
+      List<String> redisKeys = new ArrayList<>();
+      for (String contextType : new LinkedHashSet<>(contextTypes)) {
+        String redisKey = cbServerProperties.getPlayListRedisKeyMapping().get(contextType);
+        if (redisKey == null) {
+          // No playlist can exist for a context type without a Redis key
+          playLists.put(contextType, new RawValue(EMPTY_CONTENT_ARRAY));
+        } else {
+          playLists.put(contextType, null);
+          knownContextTypes.add(contextType);
+          redisKeys.add(redisKey);
+        }
       }
-      if (playListStringFromRedis == null || "[null]".equals(playListStringFromRedis)
-          || playListStringFromRedis.isEmpty()) {
-        // Fetch from postgres and add fetched playlist into redis
-        Optional<PlayListEntity> optionalJsonNodeEntity = Optional.ofNullable(
-            playListRepository.findByOrgId(orgId));
-        PlayListEntity playListEntity = optionalJsonNodeEntity.orElse(null);
-        log.debug("PlayListService::readPlayList::fetched playList from postgres");
-        playListEntity.getData().get(Constants.CHILDREN);
-        Map<String, Map<String, Object>> enrichContentMaps = new HashMap<>();
-        enrichContentMaps = fetchContentDetails(playListEntity.getData().get(Constants.CHILDREN));
-        ObjectNode enrichedContentJson = objectMapper.createObjectNode();
-        enrichedContentJson.put(Constants.CHILDREN, objectMapper.valueToTree(enrichContentMaps));
-        enrichedContentJson.put(Constants.ID, playListEntity.getOrgId());
-        persistInRedis(enrichedContentJson, playListEntity);
-        for (String contextType : contextTypes) {
-          playListStringFromRedis =
-              redisCacheMngr.hget(cbServerProperties.getPlayListRedisKeyMapping().get(contextType), redisInsightIndex, orgId).toString();
-          log.debug("Cached PlayList: " + playListStringFromRedis);
-
+      List<String> cachedPlayLists = redisKeys.isEmpty() ? null
+          : redisCacheMngr.hgetValues(redisKeys, redisInsightIndex, orgId);
+      Map<String, CompletableFuture<String>> rebuilds = new LinkedHashMap<>();
+      for (int i = 0; i < knownContextTypes.size(); i++) {
+        String contextType = knownContextTypes.get(i);
+        String cached = cachedPlayLists != null ? cachedPlayLists.get(i) : null;
+        // Playlists stored before the content array layout are rebuilt like missing ones
+        if (isContentArray(cached)) {
+          playLists.put(contextType, new RawValue(cached));
+        } else {
+          // Concurrent reads of the same missing playlist share one rebuild
+          rebuilds.put(contextType, singleFlight.executeAsync(
+              "playlist_" + orgId + "_" + contextType,
+              () -> CompletableFuture.supplyAsync(
+                  () -> rebuildPlayList(orgId, contextType, cached), rebuildExecutor)));
         }
       }
+      log.info("Cached PlayList for orgId: {} in {} of {} contexts", orgId,
+          knownContextTypes.size() - rebuilds.size(), knownContextTypes.size());
+      // Contexts whose rebuild is still running at the deadline are served empty
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rebuildTimeoutMs);
+      List<String> timedOutContextTypes = new ArrayList<>();
+      for (Map.Entry<String, CompletableFuture<String>> rebuild : rebuilds.entrySet()) {
+        try {
+          playLists.put(rebuild.getKey(), new RawValue(rebuild.getValue()
+              .get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)));
+        } catch (TimeoutException e) {
+          rebuild.getValue().cancel(true);
+          log.warn("PlayListService::readPlayList: rebuild of {} playList of {} timed out",
+              rebuild.getKey(), orgId);
+          playLists.put(rebuild.getKey(), new RawValue(EMPTY_CONTENT_ARRAY));
+          timedOutContextTypes.add(rebuild.getKey());
+        } catch (ExecutionException e) {
+          throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+      }
+      if (!timedOutContextTypes.isEmpty()) {
+        response.getResult().put(Constants.TIMED_OUT_CONTEXTS, timedOutContextTypes);
+      }
 
-      JsonNode rootNode = null;
-      rootNode = objectMapper.readTree(playListStringFromRedis);
-      JsonNode firstElement = rootNode.get(0);
-      String childrenJsonString = firstElement.get(Constants.CHILDREN).asText();
-      JsonNode childrenNode = objectMapper.readTree(childrenJsonString);
-      Map<String, JsonNode> childMap = new HashMap<>();
-      List<JsonNode> dataList = new ArrayList<>();
-      childrenNode.fields().forEachRemaining(entry -> {
-        String childId = entry.getKey();
-        JsonNode childData = entry.getValue();
-        dataList.add(childData);
-      });
-
+      // The stored arrays are written to the response as is, without parsing them
       response.setResponseCode(HttpStatus.OK);
-      response.getResult().put(Constants.CONTENT, dataList);
+      response.getResult().put(Constants.CONTENT, playLists);
       return response;
     } catch (Exception e) {
       logger.error("Failed to Create PalyList: ", e);
@@ -278,26 +440,22 @@ public class PlayListServiceImpl implements PlayListSerive {
       if (optionalJsonNodeEntity.isPresent()) {
         JsonNode fetchedData = playListEntity.getData();
         log.info("PlayListService::readPlayList::fetched playList from postgres");
-        ArrayNode fetchedChildren = (ArrayNode) playListEntity.getData().get(Constants.CHILDREN);
-        ArrayNode updateChildren = (ArrayNode) playListDetails.get(Constants.CHILDREN);
+        List<String> previousChildIds = childIds(fetchedData.get(Constants.CHILDREN));
+        List<String> mergedChildIds = applyChildrenDelta(previousChildIds, playListDetails);
         ArrayNode mergedChildren = objectMapper.createArrayNode();
-        mergedChildren.addAll(fetchedChildren);
-        mergedChildren.addAll(updateChildren);
+        mergedChildIds.forEach(mergedChildren::add);
         ((ObjectNode) fetchedData).put(Constants.CHILDREN, mergedChildren);
         Timestamp currentTime = new Timestamp(System.currentTimeMillis());
         playListEntity.setUpdatedOn(currentTime);
         PlayListEntity saveJsonEntity = playListRepository.save(playListEntity);
-        Map<String, Map<String, Object>> enrichContentMaps = new HashMap<>();
-        enrichContentMaps = fetchContentDetails(mergedChildren);
-        ObjectNode enrichedContentJson = objectMapper.createObjectNode();
-        enrichedContentJson.put(Constants.CHILDREN, objectMapper.valueToTree(enrichContentMaps));
-        enrichedContentJson.put(Constants.ID, playListEntity.getOrgId());
-        persistInRedis(enrichedContentJson, playListEntity);
+        EnrichmentResult enrichment = patchInRedis(previousChildIds, mergedChildIds,
+            playListEntity);
         response = ProjectUtil.createDefaultResponse(Constants.API_PLAYLIST_CREATE);
         response.put(Constants.RESPONSE, Constants.SUCCESS);
         response.setResponseCode(HttpStatus.OK);
         response.getResult().put(Constants.STATUS, Constants.CREATED);
         response.getResult().put(Constants.ID, optionalJsonNodeEntity.get().getId());
+        putEnrichmentFailures(response, enrichment);
         return response;
       }
     } catch (Exception e) {
@@ -345,6 +503,40 @@ public class PlayListServiceImpl implements PlayListSerive {
     return response;
   }
 
+  /**
+   * The playlist is saved with the children that could be read; the others are listed in the
+   * response so that the caller can retry them.
+   */
+  private void putEnrichmentFailures(ApiResponse response, EnrichmentResult enrichment) {
+    if (!enrichment.isComplete()) {
+      response.getResult().put(Constants.ENRICHMENT_FAILURES, enrichment.getFailures());
+    }
+  }
+
+  /**
+   * Enriches the org's playlist of the context type from postgres and stores it in Redis.
+   * Returns the stored content array, empty when the org has no such playlist.
+   */
+  private String rebuildPlayList(String orgId, String contextType, String stored) {
+    PlayListEntity playListEntity = playListRepository.findByOrgIdAndRequestType(orgId,
+        contextType);
+    log.debug("PlayListService::readPlayList::fetched playList from postgres");
+    if (playListEntity == null) {
+      return EMPTY_CONTENT_ARRAY;
+    }
+    EnrichmentResult enrichment =
+        fetchContentDetails(childIds(playListEntity.getData().get(Constants.CHILDREN)));
+    if (!enrichment.isComplete()) {
+      log.warn("PlayListService::readPlayList: rebuilt {} playList of {} without {}", contextType,
+          orgId, enrichment.getFailures().keySet());
+    }
+    return persistInRedis(enrichment.getContents(), playListEntity, stored);
+  }
+
+  private boolean isContentArray(String playList) {
+    return playList != null && playList.startsWith("[");
+  }
+
   private void validatePayload(SearchDto searchDto) {
     log.info("PlayListService::validatePayload:inside method");
     if (searchDto == null || searchDto.getRequest() == null) {
@@ -0,0 +1,124 @@
+package com.igot.cb.playlist.util;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.igot.cb.playlist.dto.EnrichmentResult;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections.MapUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the content of many ids concurrently on a dedicated, bounded executor.
+ * <p>
+ * All reads of one call share the deadline {@code playlist.enrich.deadline.ms}; reads still
+ * running when it passes are cancelled and reported as failures, so one slow content read no
+ * longer holds up a whole playlist. Content that the reader does not return is left out without
+ * being a failure. When the queue is full further reads are rejected and reported as failures
+ * rather than run on the calling thread, which would not be bounded by the deadline.
+ */
+@Component
+@Slf4j
+public class ContentEnricher {
+
+  private static final String METRIC_PREFIX = "playlist.enrich.";
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Value("${playlist.enrich.threads}")
+  private int threads;
+
+  @Value("${playlist.enrich.queue.size}")
+  private int queueSize;
+
+  @Value("${playlist.enrich.deadline.ms}")
+  private long deadlineMs;
+
+  private ThreadPoolExecutor executor;
+  private Timer duration;
+  private Meter failures;
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(queueSize), runnable -> {
+      Thread thread = new Thread(runnable, "playlist-enrich");
+      thread.setDaemon(true);
+      return thread;
+    }, new ThreadPoolExecutor.AbortPolicy());
+    duration = metricRegistry.timer(METRIC_PREFIX + "duration");
+    failures = metricRegistry.meter(METRIC_PREFIX + "failures");
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Reads every distinct id with the reader, keeping the order of the ids in the result.
+   */
+  public EnrichmentResult enrich(List<String> ids, Function<String, Map<String, Object>> reader) {
+    EnrichmentResult result = new EnrichmentResult();
+    if (ids.isEmpty()) {
+      return result;
+    }
+    try (Timer.Context ignored = duration.time()) {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+      Map<String, Future<Map<String, Object>>> reads = new LinkedHashMap<>();
+      for (String id : new LinkedHashSet<>(ids)) {
+        try {
+          reads.put(id, executor.submit(() -> reader.apply(id)));
+        } catch (RejectedExecutionException e) {
+          recordFailure(result, id, "Rejected, too many content reads in progress");
+        }
+      }
+      for (Map.Entry<String, Future<Map<String, Object>>> read : reads.entrySet()) {
+        String failure = null;
+        try {
+          Map<String, Object> content = read.getValue()
+              .get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+          if (MapUtils.isNotEmpty(content)) {
+            result.getContents().put(read.getKey(), content);
+          }
+        } catch (TimeoutException e) {
+          read.getValue().cancel(true);
+          failure = "Timed out after " + deadlineMs + " ms";
+        } catch (ExecutionException e) {
+          failure = String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          read.getValue().cancel(true);
+          failure = "Interrupted";
+        }
+        if (failure != null) {
+          recordFailure(result, read.getKey(), failure);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void recordFailure(EnrichmentResult result, String id, String failure) {
+    failures.mark();
+    log.warn("ContentEnricher::enrich: failed to read content {}: {}", id, failure);
+    result.getFailures().put(id, failure);
+  }
+}
@@ -1,23 +1,200 @@
 package com.igot.cb.playlist.util;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * In-process cache of content fields read through {@link RedisCacheMngr}.
+ * <p>
+ * Bounded by size with W-TinyLFU eviction and safe for concurrent use. Each entry expires after
+ * its own TTL. Entries still being read after {@code playlist.content.cache.refresh.after.ms} are
+ * reloaded from Redis in the background while the current value keeps being served, so hot
+ * content does not fall out of the cache; an entry that cannot be reloaded is dropped.
+ */
 @Component
+@Slf4j
 public class DataCacheManager {
 
-  private Map<String, Map<String, Object>> contentCacheMap = new HashMap<String, Map<String, Object>>();
+  private static final String METRIC_PREFIX = "playlist.content.cache.";
+
+  @Autowired
+  private RedisCacheMngr redisCacheMngr;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Value("${playlist.content.cache.max.entries}")
+  private long maxEntries;
+
+  @Value("${playlist.content.cache.ttl.ms}")
+  private long defaultTtlMs;
+
+  @Value("${playlist.content.cache.refresh.after.ms}")
+  private long refreshAfterMs;
+
+  @Value("${playlist.content.cache.refresh.threads}")
+  private int refreshThreads;
+
+  private ExecutorService refreshExecutor;
+  private LoadingCache<String, CachedContent> contentCache;
+
+  @PostConstruct
+  public void init() {
+    refreshExecutor = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+      Thread thread = new Thread(runnable, "content-cache-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    contentCache = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfter(new Expiry<String, CachedContent>() {
+          @Override
+          public long expireAfterCreate(String key, CachedContent value, long currentTime) {
+            return value.ttlNanos;
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, CachedContent value, long currentTime,
+              long currentDuration) {
+            return value.ttlNanos;
+          }
+
+          @Override
+          public long expireAfterRead(String key, CachedContent value, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .refreshAfterWrite(refreshAfterMs, TimeUnit.MILLISECONDS)
+        .executor(refreshExecutor)
+        .recordStats()
+        .build(new CacheLoader<String, CachedContent>() {
+          @Override
+          public CachedContent load(String key) {
+            // Only refreshes load; reads use getIfPresent and callers fill misses themselves
+            return null;
+          }
+
+          @Override
+          public CachedContent reload(String key, CachedContent oldValue) {
+            return reloadFromRedis(key, oldValue);
+          }
+        });
+    metricRegistry.register(METRIC_PREFIX + "hits",
+        (Gauge<Long>) () -> contentCache.stats().hitCount());
+    metricRegistry.register(METRIC_PREFIX + "misses",
+        (Gauge<Long>) () -> contentCache.stats().missCount());
+    metricRegistry.register(METRIC_PREFIX + "evictions",
+        (Gauge<Long>) () -> contentCache.stats().evictionCount());
+    metricRegistry.register(METRIC_PREFIX + "hit.ratio",
+        (Gauge<Double>) () -> contentCache.stats().hitRate());
+    metricRegistry.register(METRIC_PREFIX + "size",
+        (Gauge<Long>) () -> contentCache.estimatedSize());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
 
   public Map<String, Object> getContentFromCache(String key) {
-    if (contentCacheMap.containsKey(key)) {
-      return contentCacheMap.get(key);
+    CachedContent cached = contentCache.getIfPresent(key);
+    return cached != null ? cached.data : null;
+  }
+
+  /**
+   * Cached content of the keys that are present, in key order.
+   */
+  public Map<String, Map<String, Object>> getContentsFromCache(List<String> keys) {
+    Map<String, Map<String, Object>> contents = new LinkedHashMap<>();
+    Map<String, CachedContent> present = contentCache.getAllPresent(keys);
+    for (String key : keys) {
+      CachedContent cached = present.get(key);
+      if (cached != null) {
+        contents.put(key, cached.data);
+      }
     }
-    return null;
+    return contents;
+  }
+
+  public void putContentsInCache(Map<String, Map<String, Object>> values) {
+    long ttlNanos = TimeUnit.MILLISECONDS.toNanos(defaultTtlMs);
+    Map<String, CachedContent> entries = new HashMap<>();
+    values.forEach((key, value) -> {
+      if (value != null) {
+        entries.put(key, new CachedContent(value, ttlNanos));
+      }
+    });
+    contentCache.putAll(entries);
   }
 
   public void putContentInCache(String key, Map<String, Object> value) {
-    contentCacheMap.put(key, value);
+    putContentInCache(key, value, defaultTtlMs);
   }
 
+  public void putContentInCache(String key, Map<String, Object> value, long ttlMs) {
+    if (value == null) {
+      contentCache.invalidate(key);
+      return;
+    }
+    contentCache.put(key, new CachedContent(value, TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+  }
+
+  /**
+   * Reads the content again from Redis, keeping the fields and TTL of the cached entry.
+   */
+  private CachedContent reloadFromRedis(String key, CachedContent oldValue) {
+    String contentString = redisCacheMngr.getContentFromCache(key);
+    if (contentString == null || contentString.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      Map<String, Object> contentData = mapper.readValue(contentString,
+          new TypeReference<Map<String, Object>>() {
+          });
+      Map<String, Object> refreshed = new HashMap<>();
+      for (String field : oldValue.data.keySet()) {
+        if (contentData.containsKey(field)) {
+          refreshed.put(field, contentData.get(field));
+        }
+      }
+      return new CachedContent(refreshed, oldValue.ttlNanos);
+    } catch (Exception e) {
+      log.error("Failed to refresh content {} from redis: {}", key, e.getMessage());
+      return null;
+    }
+  }
+
+  private static final class CachedContent {
+
+    private final Map<String, Object> data;
+    private final long ttlNanos;
+
+    private CachedContent(Map<String, Object> data, long ttlNanos) {
+      this.data = data;
+      this.ttlNanos = ttlNanos;
+    }
+  }
 }
@@ -1,6 +1,9 @@
 package com.igot.cb.playlist.util;
 
 import com.igot.cb.pores.config.RedisConfig;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -8,11 +11,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 @Component
 @Slf4j
 public class RedisCacheMngr {
 
+  private static final String REPLACE_HASH_FIELD_SCRIPT =
+      "local current = redis.call('hget', KEYS[1], ARGV[1]) "
+          + "if (ARGV[2] == '0' and not current) or (ARGV[2] == '1' and current == ARGV[3]) then "
+          + "redis.call('hset', KEYS[1], ARGV[1], ARGV[4]) return 1 end "
+          + "redis.call('hdel', KEYS[1], ARGV[1]) return 0";
+
   @Autowired
   private RedisConfig redisConfig;
 
@@ -28,9 +39,20 @@ public class RedisCacheMngr {
     }
   }
 
-  public List<String> hget(String key, int index, String... fields) {
+  /**
+   * Values of all keys with one MGET, in key order with null for missing keys; null on failure.
+   */
+  public List<String> getContentsFromCache(List<String> keys) {
     try (Jedis jedis = jedisPool.getResource()) {
-      jedis.select(index);
+      return jedis.mget(keys.toArray(new String[0]));
+    } catch (Exception e) {
+      log.error(e.toString());
+      return null;
+    }
+  }
+
+  public List<String> hget(String key, int index, String... fields) {
+    try (Jedis jedis = redisConfig.databasePool(index).getResource()) {
       return jedis.hmget(key, fields);
     } catch (Exception e) {
       log.error(e.toString());
@@ -38,9 +60,57 @@ public class RedisCacheMngr {
     }
   }
 
+  public String hgetValue(String key, int index, String field) {
+    try (Jedis jedis = redisConfig.databasePool(index).getResource()) {
+      return jedis.hget(key, field);
+    } catch (Exception e) {
+      log.error(e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Value of the field in each of the hashes, fetched in one pipelined round trip, in key order
+   * with null where the hash or field is missing; null on failure.
+   */
+  public List<String> hgetValues(List<String> keys, int index, String field) {
+    try (Jedis jedis = redisConfig.databasePool(index).getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      List<Response<String>> responses = new ArrayList<>(keys.size());
+      for (String key : keys) {
+        responses.add(pipeline.hget(key, field));
+      }
+      pipeline.sync();
+      List<String> values = new ArrayList<>(keys.size());
+      responses.forEach(response -> values.add(response.get()));
+      return values;
+    } catch (Exception e) {
+      log.error(e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Sets the field to the value only if it still holds {@code expected} (null for a missing
+   * field), in one atomic step. Otherwise another writer changed it meanwhile and the field is
+   * deleted, so that the next read rebuilds it from the primary store.
+   *
+   * @return true when the value was written
+   */
+  public boolean hreplace(String key, int index, String field, String expected, String value) {
+    try (Jedis jedis = redisConfig.databasePool(index).getResource()) {
+      Object replaced = jedis.eval(REPLACE_HASH_FIELD_SCRIPT, Collections.singletonList(key),
+          Arrays.asList(field, expected == null ? "0" : "1", expected == null ? "" : expected,
+              value));
+      return Long.valueOf(1L).equals(replaced);
+    } catch (Exception e) {
+      log.error(e.toString());
+      return false;
+    }
+  }
+
   public void hset(String key, int index, Map<String, String> fieldValues) {
-    try (Jedis jedis = jedisPool.getResource()) {
-      jedis.select(index);
+    try (Jedis jedis = redisConfig.databasePool(index).getResource()) {
       jedis.hmset(key, fieldValues);
 
     } catch (Exception e) {
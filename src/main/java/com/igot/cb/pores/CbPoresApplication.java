@@ -3,6 +3,7 @@ package com.igot.cb.pores;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
@@ -28,13 +29,20 @@ public class CbPoresApplication {
 		SpringApplication.run(CbPoresApplication.class, args);
 	}
 
+    @Value("${rest.client.timeout.ms}")
+    private int restClientTimeoutMs;
+
+    @Value("${playlist.enrich.deadline.ms}")
+    private long enrichDeadlineMs;
+
     @Bean
     public RestTemplate restTemplate() {
         return new RestTemplate(getClientHttpRequestFactory());
     }
 
     private ClientHttpRequestFactory getClientHttpRequestFactory() {
-        int timeout = 45000;
+        // a content read abandoned at the enrichment deadline keeps its thread until the socket times out
+        int timeout = (int) Math.min(restClientTimeoutMs, enrichDeadlineMs);
         RequestConfig config = RequestConfig.custom().setConnectTimeout(timeout).setConnectionRequestTimeout(timeout)
                 .setSocketTimeout(timeout).build();
         CloseableHttpClient client = HttpClientBuilder.create().setMaxConnTotal(2000).setMaxConnPerRoute(500)
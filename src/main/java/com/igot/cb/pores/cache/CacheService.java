@@ -1,26 +1,123 @@
 package com.igot.cb.pores.cache;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.igot.cb.pores.util.Constants;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.util.SafeEncoder;
 
+/**
+ * Two-tier cache of entity JSON: a bounded in-process L1 in front of Redis (L2). Redis values are
+ * written with the {@link CacheValueCodec} under its key namespace; writes and deletes also drop
+ * the pre-codec key so that nodes still reading it do not serve an outdated value.
+ * <p>
+ * Every write or delete updates the local L1 and publishes the key on
+ * {@code cache.invalidation.channel}, so the other nodes drop their copy. Pub/sub delivery is
+ * best effort; the L1 TTL bounds how long a node can serve a value whose invalidation it missed,
+ * and the whole L1 is cleared whenever the subscription has to reconnect.
+ */
 @Service
 @Slf4j
 public class CacheService {
 
+  private static final String METRIC_PREFIX = "cache.";
+  private static final String MESSAGE_SEPARATOR = "|";
+  private static final long RESUBSCRIBE_DELAY_MS = 5000L;
+
   @Autowired
   private JedisPool jedisPool;
   @Autowired
   private ObjectMapper objectMapper;
+  @Autowired
+  private MetricRegistry metricRegistry;
+  @Autowired
+  private CacheValueCodec codec;
 
   @Value("${spring.redis.cacheTtl}")
   private long cacheTtl;
 
+  @Value("${cache.l1.enabled}")
+  private boolean l1Enabled;
+
+  @Value("${cache.l1.max.entries}")
+  private long l1MaxEntries;
+
+  @Value("${cache.l1.ttl.ms}")
+  private long l1TtlMs;
+
+  @Value("${cache.invalidation.channel}")
+  private String invalidationChannel;
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private Cache<String, JsonNode> l1;
+  private Meter l1Hits;
+  private Meter l1Misses;
+  private Meter l1Evictions;
+  private Meter l2Hits;
+  private Meter l2Misses;
+  private volatile boolean running = true;
+  private volatile JedisPubSub subscriber;
+
+  @PostConstruct
+  public void init() {
+    l1Hits = metricRegistry.meter(METRIC_PREFIX + "l1.hits");
+    l1Misses = metricRegistry.meter(METRIC_PREFIX + "l1.misses");
+    l1Evictions = metricRegistry.meter(METRIC_PREFIX + "l1.evictions");
+    l2Hits = metricRegistry.meter(METRIC_PREFIX + "l2.hits");
+    l2Misses = metricRegistry.meter(METRIC_PREFIX + "l2.misses");
+    metricRegistry.register(METRIC_PREFIX + "l2.evictions", (Gauge<Long>) this::redisEvictedKeys);
+    if (!l1Enabled) {
+      return;
+    }
+    l1 = Caffeine.newBuilder()
+        .maximumSize(l1MaxEntries)
+        .expireAfterWrite(l1TtlMs, TimeUnit.MILLISECONDS)
+        .removalListener((String key, JsonNode value, RemovalCause cause) -> {
+          if (cause.wasEvicted()) {
+            l1Evictions.mark();
+          }
+        })
+        .build();
+    metricRegistry.register(METRIC_PREFIX + "l1.size", (Gauge<Long>) () -> l1.estimatedSize());
+    Thread subscriberThread =
+        new Thread(this::subscribeInvalidations, "cache-invalidation-subscriber");
+    subscriberThread.setDaemon(true);
+    subscriberThread.start();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    JedisPubSub current = subscriber;
+    if (current != null && current.isSubscribed()) {
+      current.unsubscribe();
+    }
+  }
+
   public Jedis getJedis() {
     try (Jedis jedis = jedisPool.getResource()) {
       return jedis;
@@ -29,30 +126,219 @@ public class CacheService {
 
   public void putCache(String key, Object object) {
     try {
-      String data = objectMapper.writeValueAsString(object);
-      try (Jedis jedis = jedisPool.getResource()) {
-        jedis.set(Constants.REDIS_KEY_PREFIX + key, data);
-//        long cacheTtl = 60000;
-        jedis.expire(Constants.REDIS_KEY_PREFIX + key, cacheTtl);
+      writeAll(Collections.singletonMap(key, objectMapper.valueToTree(object)));
+    } catch (IllegalArgumentException e) {
+      log.error("Error while putting data in Redis cache: {} ", e.getMessage());
+    }
+  }
+
+  /**
+   * Cached value of the key. Nodes may be shared with the L1 and must not be modified.
+   */
+  public JsonNode getCache(String key) {
+    return getCaches(Collections.singletonList(key)).get(0);
+  }
+
+  public void deleteCache(String key) {
+    deleteCaches(Collections.singletonList(key));
+  }
+
+  /**
+   * Cached values of every key in key order, with null for keys that are not cached. Keys
+   * missing from the L1 are read from Redis with one MGET.
+   */
+  public List<JsonNode> getCaches(List<String> keys) {
+    List<JsonNode> values = new ArrayList<>(keys.size());
+    List<byte[]> redisKeys = new ArrayList<>();
+    List<Integer> positions = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      JsonNode cached = l1 != null ? l1.getIfPresent(keys.get(i)) : null;
+      if (l1 != null) {
+        (cached != null ? l1Hits : l1Misses).mark();
+      }
+      values.add(cached);
+      if (cached == null) {
+        redisKeys.add(redisKey(keys.get(i)));
+        positions.add(i);
+      }
+    }
+    if (redisKeys.isEmpty()) {
+      return values;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      List<byte[]> data = jedis.mget(redisKeys.toArray(new byte[0][]));
+      for (int i = 0; i < data.size(); i++) {
+        JsonNode value = decode(keys.get(positions.get(i)), data.get(i));
+        if (value == null) {
+          l2Misses.mark();
+          continue;
+        }
+        l2Hits.mark();
+        values.set(positions.get(i), value);
+        if (l1 != null) {
+          l1.put(keys.get(positions.get(i)), value);
+        }
+      }
+    } catch (Exception e) {
+      log.error("Error while reading data from Redis cache: {} ", e.getMessage());
+    }
+    return values;
+  }
+
+  /**
+   * Cached values of the keys in key order, leaving out keys that neither the cache nor the
+   * loader know. Misses are passed to the loader in one call and written back in one pipeline.
+   */
+  public Map<String, JsonNode> getCachesOrLoad(List<String> keys,
+      Function<List<String>, Map<String, ?>> loader) {
+    List<JsonNode> values = getCaches(keys);
+    List<String> missing = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      if (values.get(i) == null) {
+        missing.add(keys.get(i));
+      }
+    }
+    Map<String, JsonNode> loaded = new LinkedHashMap<>();
+    if (!missing.isEmpty()) {
+      loader.apply(missing).forEach((key, value) -> loaded.put(key, objectMapper.valueToTree(value)));
+      writeAll(loaded);
+    }
+    Map<String, JsonNode> result = new LinkedHashMap<>();
+    for (int i = 0; i < keys.size(); i++) {
+      JsonNode value = values.get(i) != null ? values.get(i) : loaded.get(keys.get(i));
+      if (value != null) {
+        result.put(keys.get(i), value);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes all entries with the cache TTL in one pipelined round trip.
+   */
+  public void putCaches(Map<String, ?> objects) {
+    Map<String, JsonNode> values = new LinkedHashMap<>();
+    objects.forEach((key, value) -> values.put(key, objectMapper.valueToTree(value)));
+    writeAll(values);
+  }
+
+  /**
+   * Deletes all keys in one pipelined round trip.
+   */
+  public void deleteCaches(Collection<String> keys) {
+    if (keys.isEmpty()) {
+      return;
+    }
+    if (l1 != null) {
+      l1.invalidateAll(keys);
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      for (String key : keys) {
+        pipeline.del(redisKey(key), legacyRedisKey(key));
+        publishInvalidation(pipeline, key);
+      }
+      pipeline.sync();
+    } catch (Exception e) {
+      log.error("Error while deleting data from Redis cache: {} ", e.getMessage());
+    }
+  }
+
+  private void writeAll(Map<String, JsonNode> values) {
+    if (values.isEmpty()) {
+      return;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      for (Map.Entry<String, JsonNode> entry : values.entrySet()) {
+        pipeline.setex(redisKey(entry.getKey()), (int) cacheTtl, codec.encode(entry.getValue()));
+        // nodes without the codec reload the changed value instead of serving their old copy
+        pipeline.del(legacyRedisKey(entry.getKey()));
+        publishInvalidation(pipeline, entry.getKey());
       }
+      pipeline.sync();
     } catch (Exception e) {
       log.error("Error while putting data in Redis cache: {} ", e.getMessage());
     }
+    if (l1 != null) {
+      l1.putAll(values);
+    }
   }
 
-  public String getCache(String key) {
+  private JsonNode decode(String key, byte[] data) {
     try {
-      return getJedis().get(Constants.REDIS_KEY_PREFIX + key);
+      return codec.decode(data, JsonNode.class);
     } catch (Exception e) {
+      log.error("Error while decoding cached value of {}: {}", key, e.getMessage());
       return null;
     }
   }
 
-  public void deleteCache(String key) {
+  private byte[] redisKey(String key) {
+    return SafeEncoder.encode(CacheValueCodec.KEY_NAMESPACE + Constants.REDIS_KEY_PREFIX + key);
+  }
+
+  /**
+   * Key the value was stored under before the codec, still read by nodes without it.
+   */
+  private byte[] legacyRedisKey(String key) {
+    return SafeEncoder.encode(Constants.REDIS_KEY_PREFIX + key);
+  }
+
+  private void publishInvalidation(Pipeline pipeline, String key) {
+    if (l1Enabled) {
+      pipeline.publish(invalidationChannel, nodeId + MESSAGE_SEPARATOR + key);
+    }
+  }
+
+  /**
+   * Holds one Redis connection subscribed to the invalidation channel, reconnecting after
+   * failures. Messages published by this node are skipped since its own L1 is already current.
+   */
+  private void subscribeInvalidations() {
+    while (running) {
+      JedisPubSub pubSub = new JedisPubSub() {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+          // Invalidations published while this node was not subscribed are lost
+          l1.invalidateAll();
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+          int separator = message.indexOf(MESSAGE_SEPARATOR);
+          if (separator > 0 && !nodeId.equals(message.substring(0, separator))) {
+            l1.invalidate(message.substring(separator + 1));
+          }
+        }
+      };
+      subscriber = pubSub;
+      try (Jedis jedis = jedisPool.getResource()) {
+        jedis.subscribe(pubSub, invalidationChannel);
+      } catch (Exception e) {
+        log.error("Cache invalidation subscription failed: {}", e.getMessage());
+      }
+      if (running) {
+        try {
+          Thread.sleep(RESUBSCRIBE_DELAY_MS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private long redisEvictedKeys() {
     try (Jedis jedis = jedisPool.getResource()) {
-      jedis.del(Constants.REDIS_KEY_PREFIX + key);
+      for (String line : jedis.info("stats").split("\r?\n")) {
+        if (line.startsWith("evicted_keys:")) {
+          return Long.parseLong(line.substring("evicted_keys:".length()).trim());
+        }
+      }
     } catch (Exception e) {
-      log.error("Error while deleting data from Redis cache: {} ", e.getMessage());
+      log.error("Error while reading Redis eviction stats: {}", e.getMessage());
     }
+    return -1L;
   }
 }
@@ -0,0 +1,192 @@
+package com.igot.cb.pores.cache;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.Zstd;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Factory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes cache values as JSON, Smile or CBOR, compressed with LZ4 or zstd above a size threshold.
+ * <p>
+ * Encoded values start with a header: {@link #HEADER_VERSION}, the format id, the compression id
+ * and, when compressed, the uncompressed length as four bytes. Decoding reads the header, so
+ * nodes with different settings can share a cache during a rollout. Values written before the
+ * codec existed are still read: JDK serialized objects by their stream magic, anything else as
+ * plain JSON text.
+ * <p>
+ * Nodes without the codec read the same logical keys as JDK serialized objects or JSON text and
+ * cannot parse the header, so encoded values are stored under keys starting with
+ * {@link #KEY_NAMESPACE}.
+ * <p>
+ * Values holding raw JSON, such as search hits passed through as raw source, cannot be written
+ * in the binary formats; their type is remembered and stored as (compressed) JSON instead.
+ */
+@Component
+@Slf4j
+public class CacheValueCodec {
+
+  public static final byte HEADER_VERSION = 0x01;
+  public static final String KEY_NAMESPACE = "codec_";
+
+  private static final byte JDK_STREAM_MAGIC = (byte) 0xAC;
+  private static final int HEADER_LENGTH = 3;
+  private static final int LENGTH_BYTES = 4;
+  private static final String METRIC_PREFIX = "cache.codec.";
+
+  enum Format {
+    JSON, SMILE, CBOR
+  }
+
+  enum Compression {
+    NONE, LZ4, ZSTD
+  }
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Value("${cache.codec.format}")
+  private String formatName;
+
+  @Value("${cache.codec.compression}")
+  private String compressionName;
+
+  @Value("${cache.codec.compression.threshold.bytes}")
+  private int compressionThreshold;
+
+  @Value("${cache.codec.zstd.level}")
+  private int zstdLevel;
+
+  private Format format;
+  private Compression compression;
+  private final ObjectMapper[] mappers = new ObjectMapper[Format.values().length];
+  private final Set<Class<?>> jsonOnlyTypes =
+      Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final JdkSerializationRedisSerializer jdkSerializer =
+      new JdkSerializationRedisSerializer();
+  private LZ4Factory lz4;
+  private Histogram serializedBytes;
+  private Histogram storedBytes;
+
+  @PostConstruct
+  public void init() {
+    format = Format.valueOf(formatName.trim().toUpperCase());
+    compression = Compression.valueOf(compressionName.trim().toUpperCase());
+    mappers[Format.JSON.ordinal()] = newMapper(new ObjectMapper());
+    mappers[Format.SMILE.ordinal()] = newMapper(new ObjectMapper(new SmileFactory()));
+    mappers[Format.CBOR.ordinal()] = newMapper(new ObjectMapper(new CBORFactory()));
+    lz4 = LZ4Factory.fastestInstance();
+    serializedBytes = metricRegistry.histogram(METRIC_PREFIX + "serialized.bytes");
+    storedBytes = metricRegistry.histogram(METRIC_PREFIX + "stored.bytes");
+  }
+
+  public byte[] encode(Object value) throws IOException {
+    Format valueFormat = jsonOnlyTypes.contains(value.getClass()) ? Format.JSON : format;
+    byte[] payload;
+    try {
+      payload = mappers[valueFormat.ordinal()].writeValueAsBytes(value);
+    } catch (UnsupportedOperationException | JsonMappingException e) {
+      if (valueFormat == Format.JSON || !isUnsupportedRawValue(e)) {
+        throw e;
+      }
+      log.info("{} holds raw JSON and is cached as JSON", value.getClass().getSimpleName());
+      jsonOnlyTypes.add(value.getClass());
+      valueFormat = Format.JSON;
+      payload = mappers[Format.JSON.ordinal()].writeValueAsBytes(value);
+    }
+    serializedBytes.update(payload.length);
+    byte[] compressed = payload.length >= compressionThreshold ? compress(payload) : null;
+    ByteBuffer encoded;
+    if (compressed != null && compressed.length + LENGTH_BYTES < payload.length) {
+      encoded = ByteBuffer.allocate(HEADER_LENGTH + LENGTH_BYTES + compressed.length)
+          .put(HEADER_VERSION).put((byte) valueFormat.ordinal()).put((byte) compression.ordinal())
+          .putInt(payload.length).put(compressed);
+    } else {
+      encoded = ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+          .put(HEADER_VERSION).put((byte) valueFormat.ordinal())
+          .put((byte) Compression.NONE.ordinal()).put(payload);
+    }
+    storedBytes.update(encoded.capacity());
+    return encoded.array();
+  }
+
+  public <T> T decode(byte[] bytes, Class<T> type) throws IOException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    if (bytes[0] == JDK_STREAM_MAGIC) {
+      return type.cast(jdkSerializer.deserialize(bytes));
+    }
+    if (bytes[0] != HEADER_VERSION) {
+      return mappers[Format.JSON.ordinal()].readValue(bytes, type);
+    }
+    ObjectMapper mapper = mappers[bytes[1]];
+    Compression valueCompression = Compression.values()[bytes[2]];
+    if (valueCompression == Compression.NONE) {
+      return mapper.readValue(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, type);
+    }
+    int length = ByteBuffer.wrap(bytes, HEADER_LENGTH, LENGTH_BYTES).getInt();
+    if (length < 0) {
+      throw new IOException("Corrupt cache value length " + length);
+    }
+    return mapper.readValue(decompress(valueCompression, bytes, length), type);
+  }
+
+  private byte[] compress(byte[] payload) {
+    if (compression == Compression.LZ4) {
+      return lz4.fastCompressor().compress(payload);
+    } else if (compression == Compression.ZSTD) {
+      return Zstd.compress(payload, zstdLevel);
+    }
+    return null;
+  }
+
+  /**
+   * Decompresses the payload into at most the stored uncompressed length; the bounds checking
+   * decompressor fails on corrupt input instead of reading past the value.
+   */
+  private byte[] decompress(Compression valueCompression, byte[] bytes, int length)
+      throws IOException {
+    int offset = HEADER_LENGTH + LENGTH_BYTES;
+    byte[] payload;
+    if (valueCompression == Compression.LZ4) {
+      payload = lz4.safeDecompressor().decompress(bytes, offset, bytes.length - offset, length);
+    } else {
+      payload = Zstd.decompress(Arrays.copyOfRange(bytes, offset, bytes.length), length);
+    }
+    if (payload.length != length) {
+      throw new IOException("Cache value decompressed to " + payload.length + " bytes, expected "
+          + length);
+    }
+    return payload;
+  }
+
+  private boolean isUnsupportedRawValue(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof UnsupportedOperationException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ObjectMapper newMapper(ObjectMapper mapper) {
+    return mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  }
+}
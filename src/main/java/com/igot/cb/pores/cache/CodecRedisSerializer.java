@@ -0,0 +1,39 @@
+package com.igot.cb.pores.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * {@link RedisSerializer} for {@code RedisTemplate} values backed by the {@link CacheValueCodec}.
+ */
+public class CodecRedisSerializer<T> implements RedisSerializer<T> {
+
+  private final CacheValueCodec codec;
+  private final Class<T> type;
+
+  public CodecRedisSerializer(CacheValueCodec codec, Class<T> type) {
+    this.codec = codec;
+    this.type = type;
+  }
+
+  @Override
+  public byte[] serialize(T value) {
+    if (value == null) {
+      return new byte[0];
+    }
+    try {
+      return codec.encode(value);
+    } catch (Exception e) {
+      throw new SerializationException("Cannot encode " + type.getSimpleName(), e);
+    }
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) {
+    try {
+      return codec.decode(bytes, type);
+    } catch (Exception e) {
+      throw new SerializationException("Cannot decode " + type.getSimpleName(), e);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.igot.cb.pores.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Cluster-wide write-version counter per Elasticsearch index, kept in Redis so that every node
+ * sees a write made through any other node. Caches of derived search data store the version they
+ * were computed at and are stale once the counter has moved on.
+ */
+@Service
+@Slf4j
+public class IndexVersionService {
+
+  /**
+   * Returned when the counter cannot be read; callers must not cache against it.
+   */
+  public static final long UNKNOWN_VERSION = -1L;
+
+  private static final String KEY_PREFIX = "index_version_";
+
+  @Autowired
+  private JedisPool jedisPool;
+
+  public long bump(String index) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.incr(KEY_PREFIX + index);
+    } catch (Exception e) {
+      log.error("Error while bumping write version of {}: {}", index, e.getMessage());
+      return UNKNOWN_VERSION;
+    }
+  }
+
+  public long currentVersion(String index) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      String version = jedis.get(KEY_PREFIX + index);
+      return version == null ? 0L : Long.parseLong(version);
+    } catch (Exception e) {
+      log.error("Error while reading write version of {}: {}", index, e.getMessage());
+      return UNKNOWN_VERSION;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.igot.cb.pores.cache;
+
+import java.nio.charset.StandardCharsets;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * {@link RedisSerializer} for {@code RedisTemplate} keys whose values are written with the
+ * {@link CacheValueCodec}; prepends {@link CacheValueCodec#KEY_NAMESPACE} so those values never
+ * share a key with values other readers expect in an older encoding.
+ */
+public class NamespacedKeyRedisSerializer implements RedisSerializer<String> {
+
+  @Override
+  public byte[] serialize(String key) {
+    return key == null ? null
+        : (CacheValueCodec.KEY_NAMESPACE + key).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String deserialize(byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    }
+    String key = new String(bytes, StandardCharsets.UTF_8);
+    return key.startsWith(CacheValueCodec.KEY_NAMESPACE)
+        ? key.substring(CacheValueCodec.KEY_NAMESPACE.length()) : key;
+  }
+}
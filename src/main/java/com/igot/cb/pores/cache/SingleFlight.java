@@ -0,0 +1,148 @@
+package com.igot.cb.pores.cache;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load and every caller
+ * that arrives while it is in flight gets the same outcome instead of loading again. Nothing is
+ * kept once the load completes, so this is not a cache; it only stops a miss from turning into
+ * a thundering herd on the backing store.
+ */
+@Component
+public class SingleFlight {
+
+  private static final String METRIC_PREFIX = "cache.single.flight.";
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  private final ConcurrentMap<String, Flight<?>> flights = new ConcurrentHashMap<>();
+  private Meter leaders;
+  private Meter followers;
+
+  @PostConstruct
+  public void init() {
+    leaders = metricRegistry.meter(METRIC_PREFIX + "leaders");
+    followers = metricRegistry.meter(METRIC_PREFIX + "followers");
+  }
+
+  /**
+   * Runs the loader on the calling thread, or waits for the load already in flight for the key.
+   * Exceptions of the loader are rethrown to every caller.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> loader) {
+    Flight<T> flight = new Flight<>();
+    Flight<T> existing = (Flight<T>) flights.putIfAbsent(key, flight);
+    if (existing != null) {
+      followers.mark();
+      try {
+        return existing.future.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+    leaders.mark();
+    // The leader counts as a waiter, so asynchronous followers cannot cancel this load
+    flight.join();
+    try {
+      T value = loader.get();
+      flight.future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      flight.future.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  /**
+   * Asynchronous form of {@link #execute}. Every caller gets its own future; the shared load is
+   * cancelled only once all callers waiting for it have cancelled theirs.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> executeAsync(String key,
+      Supplier<CompletableFuture<T>> loader) {
+    Flight<T> flight = new Flight<>();
+    Flight<T> existing = (Flight<T>) flights.putIfAbsent(key, flight);
+    if (existing != null && existing.join()) {
+      followers.mark();
+      return existing.view();
+    }
+    if (existing != null) {
+      // Every waiter of that flight cancelled it; start a new one
+      flights.replace(key, existing, flight);
+    }
+    leaders.mark();
+    flight.join();
+    CompletableFuture<T> view = flight.view();
+    flight.future.whenComplete((value, e) -> flights.remove(key, flight));
+    try {
+      CompletableFuture<T> loading = loader.get();
+      flight.future.whenComplete((value, e) -> {
+        if (flight.future.isCancelled()) {
+          loading.cancel(true);
+        }
+      });
+      loading.whenComplete((value, e) -> {
+        if (e != null) {
+          flight.future.completeExceptionally(e);
+        } else {
+          flight.future.complete(value);
+        }
+      });
+    } catch (RuntimeException e) {
+      flight.future.completeExceptionally(e);
+    }
+    return view;
+  }
+
+  private static final class Flight<T> {
+
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Registers a waiter; false when the flight was already abandoned by all its waiters.
+     */
+    private boolean join() {
+      int current;
+      do {
+        current = waiters.get();
+        if (current < 0) {
+          return false;
+        }
+      } while (!waiters.compareAndSet(current, current + 1));
+      return true;
+    }
+
+    private CompletableFuture<T> view() {
+      CompletableFuture<T> view = new CompletableFuture<>();
+      future.whenComplete((value, e) -> {
+        if (e != null) {
+          view.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+        } else {
+          view.complete(value);
+        }
+      });
+      view.whenComplete((value, e) -> {
+        if (view.isCancelled() && waiters.decrementAndGet() == 0
+            && waiters.compareAndSet(0, -1)) {
+          future.cancel(true);
+        }
+      });
+      return view;
+    }
+  }
+}
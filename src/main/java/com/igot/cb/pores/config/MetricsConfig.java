@@ -0,0 +1,24 @@
+package com.igot.cb.pores.config;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+  public static final String METRICS_DOMAIN = "cb-pores";
+
+  @Bean
+  public MetricRegistry metricRegistry() {
+    return new MetricRegistry();
+  }
+
+  @Bean(destroyMethod = "stop")
+  public JmxReporter jmxReporter(MetricRegistry metricRegistry) {
+    JmxReporter reporter = JmxReporter.forRegistry(metricRegistry).inDomain(METRICS_DOMAIN).build();
+    reporter.start();
+    return reporter;
+  }
+}
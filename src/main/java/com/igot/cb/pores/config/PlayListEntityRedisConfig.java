@@ -1,20 +1,24 @@
 package com.igot.cb.pores.config;
 
 import com.igot.cb.playlist.entity.PlayListEntity;
+import com.igot.cb.pores.cache.CacheValueCodec;
+import com.igot.cb.pores.cache.CodecRedisSerializer;
+import com.igot.cb.pores.cache.NamespacedKeyRedisSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class PlayListEntityRedisConfig {
   @Bean
   public RedisTemplate<String, PlayListEntity> redisTemplateForPlayListEntity(
-      RedisConnectionFactory connectionFactory) {
+      RedisConnectionFactory connectionFactory, CacheValueCodec cacheValueCodec) {
     RedisTemplate<String, PlayListEntity> redisTemplate = new RedisTemplate<>();
     redisTemplate.setConnectionFactory(connectionFactory);
-    redisTemplate.setKeySerializer(new StringRedisSerializer());
+    redisTemplate.setKeySerializer(new NamespacedKeyRedisSerializer());
+    redisTemplate.setValueSerializer(
+        new CodecRedisSerializer<>(cacheValueCodec, PlayListEntity.class));
     return redisTemplate;
   }
 }
@@ -1,30 +1,89 @@
 package com.igot.cb.pores.config;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
 
 import java.time.Duration;
 
+/**
+ * Jedis pools, one per logical Redis database. Connections of a pool are opened on its database
+ * and never switched with SELECT, so a connection returned to a pool always reads from the
+ * database that pool stands for.
+ */
 @Configuration
 @EnableCaching
 public class RedisConfig {
 
+  private static final String METRIC_PREFIX = "redis.pool.db";
+
   @Value("${spring.redis.host}")
   private String redisHost;
 
   @Value("${spring.redis.port}")
   private int redisPort;
 
+  @Value("${redis.db.pool.max.total}")
+  private int databasePoolMaxTotal;
+
+  @Value("${redis.db.pool.max.idle}")
+  private int databasePoolMaxIdle;
+
+  @Value("${redis.db.pool.min.idle}")
+  private int databasePoolMinIdle;
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  private final ConcurrentMap<Integer, JedisPool> databasePools = new ConcurrentHashMap<>();
+
+  /**
+   * Pool of the default database used by the entity caches.
+   */
   @Bean
   public JedisPool jedisPool() {
+    JedisPool pool = new JedisPool(poolConfig(3000, 128, 100), redisHost, redisPort);
+    registerMetrics(Protocol.DEFAULT_DATABASE, pool);
+    return pool;
+  }
+
+  /**
+   * Pool whose connections are pinned to the given database. Pools other than the default one
+   * are created on first use and sized by {@code redis.db.pool.*}.
+   */
+  public JedisPool databasePool(int database) {
+    if (database == Protocol.DEFAULT_DATABASE) {
+      return jedisPool();
+    }
+    return databasePools.computeIfAbsent(database, db -> {
+      JedisPool pool = new JedisPool(
+          poolConfig(databasePoolMaxTotal, databasePoolMaxIdle, databasePoolMinIdle),
+          redisHost, redisPort, Protocol.DEFAULT_TIMEOUT, null, db);
+      registerMetrics(db, pool);
+      return pool;
+    });
+  }
+
+  @PreDestroy
+  public void closeDatabasePools() {
+    databasePools.values().forEach(JedisPool::close);
+  }
+
+  private JedisPoolConfig poolConfig(int maxTotal, int maxIdle, int minIdle) {
     JedisPoolConfig poolConfig = new JedisPoolConfig();
-    poolConfig.setMaxIdle(128);
-    poolConfig.setMaxTotal(3000);
-    poolConfig.setMinIdle(100);
+    poolConfig.setMaxIdle(maxIdle);
+    poolConfig.setMaxTotal(maxTotal);
+    poolConfig.setMinIdle(minIdle);
     poolConfig.setTestOnBorrow(true);
     poolConfig.setTestOnReturn(true);
     poolConfig.setTestWhileIdle(true);
@@ -32,6 +91,13 @@ public class RedisConfig {
     poolConfig.setTimeBetweenEvictionRuns(Duration.ofMillis(30000));
     poolConfig.setNumTestsPerEvictionRun(3);
     poolConfig.setBlockWhenExhausted(true);
-    return  new JedisPool(poolConfig, redisHost, redisPort);
+    return poolConfig;
+  }
+
+  private void registerMetrics(int database, JedisPool pool) {
+    String prefix = METRIC_PREFIX + database + ".";
+    metricRegistry.register(prefix + "active", (Gauge<Integer>) pool::getNumActive);
+    metricRegistry.register(prefix + "idle", (Gauge<Integer>) pool::getNumIdle);
+    metricRegistry.register(prefix + "waiters", (Gauge<Integer>) pool::getNumWaiters);
   }
 }
@@ -1,20 +1,23 @@
 package com.igot.cb.pores.config;
 
+import com.igot.cb.pores.cache.CacheValueCodec;
+import com.igot.cb.pores.cache.CodecRedisSerializer;
+import com.igot.cb.pores.cache.NamespacedKeyRedisSerializer;
 import com.igot.cb.pores.elasticsearch.dto.SearchResult;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class SearchResultRedisConfig {
     @Bean
     public RedisTemplate<String, SearchResult> redisTemplateForSearchResult(
-            RedisConnectionFactory connectionFactory) {
+            RedisConnectionFactory connectionFactory, CacheValueCodec cacheValueCodec) {
         RedisTemplate<String, SearchResult> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(connectionFactory);
-        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setKeySerializer(new NamespacedKeyRedisSerializer());
+        redisTemplate.setValueSerializer(new CodecRedisSerializer<>(cacheValueCodec, SearchResult.class));
         return redisTemplate;
     }
 }
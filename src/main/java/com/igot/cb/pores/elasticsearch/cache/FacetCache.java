@@ -0,0 +1,190 @@
+package com.igot.cb.pores.elasticsearch.cache;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.elasticsearch.dto.FacetDTO;
+import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache of facet buckets keyed by index, facet field and canonical filter set.
+ * <p>
+ * Every entry records the index write version ({@link IndexVersionService}) it was computed at
+ * and is only served while that version is still current, so any write to the index invalidates
+ * all facets of that index at once without scanning the cache.
+ * <p>
+ * The total count is stored with its relation, since it is only a lower bound when the search
+ * that computed it stopped counting at {@code trackTotalHitsUpTo}.
+ */
+@Component
+public class FacetCache {
+
+  private static final String METRIC_PREFIX = "es.facet.cache.";
+
+  @Autowired
+  private IndexVersionService indexVersionService;
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Value("${elastic.facet.cache.enabled}")
+  private boolean enabled;
+
+  @Value("${elastic.facet.cache.max.entries}")
+  private int maxEntries;
+
+  @Value("${elastic.search.wildcard.enabled}")
+  private boolean wildcardSearchEnabled;
+
+  private Map<String, Entry> entries;
+  private Meter hits;
+  private Meter misses;
+
+  @PostConstruct
+  public void init() {
+    entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    });
+    hits = metricRegistry.meter(METRIC_PREFIX + "hits");
+    misses = metricRegistry.meter(METRIC_PREFIX + "misses");
+  }
+
+  /**
+   * Splits the requested facets into those served from the cache and those that still need an
+   * aggregation.
+   */
+  public Lookup lookup(String index, SearchCriteria searchCriteria) {
+    return lookup(index, searchCriteria, () -> indexVersionService.currentVersion(index));
+  }
+
+  /**
+   * Same as {@link #lookup(String, SearchCriteria)} at an index version the caller has already
+   * read, saving the Redis round trip.
+   */
+  public Lookup lookup(String index, SearchCriteria searchCriteria, long indexVersion) {
+    return lookup(index, searchCriteria, () -> indexVersion);
+  }
+
+  private Lookup lookup(String index, SearchCriteria searchCriteria, LongSupplier indexVersion) {
+    List<String> facets = searchCriteria != null && !searchCriteria.isCountOnly()
+        ? searchCriteria.getFacets() : null;
+    if (facets == null || facets.isEmpty()) {
+      return new Lookup(index, null, IndexVersionService.UNKNOWN_VERSION,
+          Collections.emptyList());
+    }
+    if (!enabled) {
+      return new Lookup(index, null, IndexVersionService.UNKNOWN_VERSION, facets);
+    }
+    String filterKey = SearchCriteriaKeys.filterKey(searchCriteria, wildcardSearchEnabled);
+    long version = indexVersion.getAsLong();
+    Lookup lookup = new Lookup(index, filterKey, version, new ArrayList<>());
+    for (String field : facets) {
+      Entry entry = version == IndexVersionService.UNKNOWN_VERSION ? null
+          : entries.get(entryKey(index, field, filterKey));
+      if (entry != null && entry.version == version) {
+        hits.mark();
+        lookup.cached.put(field, entry.buckets);
+        lookup.totalCount = entry.totalCount;
+        lookup.totalCountRelation = entry.totalCountRelation;
+      } else {
+        misses.mark();
+        lookup.missing.add(field);
+      }
+    }
+    return lookup;
+  }
+
+  /**
+   * Stores freshly aggregated facets at the version read by {@link #lookup}; a write that
+   * happened in the meantime has already moved the version on and makes them unreachable.
+   */
+  public void store(Lookup lookup, Map<String, List<FacetDTO>> facets, long totalCount,
+      String totalCountRelation) {
+    if (lookup.filterKey == null || lookup.version == IndexVersionService.UNKNOWN_VERSION) {
+      return;
+    }
+    for (String field : lookup.missing) {
+      List<FacetDTO> buckets = facets.get(field);
+      if (buckets != null) {
+        entries.put(entryKey(lookup.index, field, lookup.filterKey),
+            new Entry(lookup.version, Collections.unmodifiableList(buckets), totalCount,
+                totalCountRelation));
+      }
+    }
+  }
+
+  private String entryKey(String index, String field, String filterKey) {
+    return index + '|' + field + '|' + filterKey;
+  }
+
+  public static final class Lookup {
+
+    private final String index;
+    private final String filterKey;
+    private final long version;
+    private final Map<String, List<FacetDTO>> cached = new HashMap<>();
+    private final List<String> missing;
+    private long totalCount;
+    private String totalCountRelation;
+
+    private Lookup(String index, String filterKey, long version, List<String> missing) {
+      this.index = index;
+      this.filterKey = filterKey;
+      this.version = version;
+      this.missing = missing;
+    }
+
+    public List<String> getMissing() {
+      return missing;
+    }
+
+    public Map<String, List<FacetDTO>> getCached() {
+      return cached;
+    }
+
+    public long getTotalCount() {
+      return totalCount;
+    }
+
+    public String getTotalCountRelation() {
+      return totalCountRelation;
+    }
+
+    /**
+     * True when facets were requested and every one of them was current in the cache.
+     */
+    public boolean isComplete() {
+      return filterKey != null && missing.isEmpty();
+    }
+  }
+
+  private static final class Entry {
+
+    private final long version;
+    private final List<FacetDTO> buckets;
+    private final long totalCount;
+    private final String totalCountRelation;
+
+    private Entry(long version, List<FacetDTO> buckets, long totalCount,
+        String totalCountRelation) {
+      this.version = version;
+      this.buckets = buckets;
+      this.totalCount = totalCount;
+      this.totalCountRelation = totalCountRelation;
+    }
+  }
+}
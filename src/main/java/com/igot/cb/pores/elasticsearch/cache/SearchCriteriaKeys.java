@@ -0,0 +1,110 @@
+package com.igot.cb.pores.elasticsearch.cache;
+
+import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Canonical string forms of search criteria, so that requests that differ only in map order,
+ * list order or, for the analyzed n-gram search, letter case of the search string share cache
+ * entries. The wildcard search on {@code searchTags.keyword} is case sensitive, so with
+ * {@code wildcardSearch} set the search string is kept as sent.
+ */
+public final class SearchCriteriaKeys {
+
+  private SearchCriteriaKeys() {
+  }
+
+  /**
+   * Canonical form of the parts of the criteria that decide which documents match: the filter
+   * map and the search string. Paging, sorting and requested fields are not part of it.
+   */
+  public static String filterKey(SearchCriteria searchCriteria, boolean wildcardSearch) {
+    StringBuilder key = new StringBuilder();
+    Map<String, Object> filters = searchCriteria.getFilterCriteriaMap();
+    if (filters != null) {
+      new TreeMap<>(filters).forEach((field, value) ->
+          key.append(field).append('=').append(canonicalValue(value)).append(';'));
+    }
+    String searchString = searchCriteria.getSearchString();
+    if (searchString != null && !searchString.trim().isEmpty()) {
+      if (wildcardSearch) {
+        key.append("wildcard=").append(searchString);
+      } else {
+        key.append("q=").append(searchString.trim().toLowerCase());
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Canonical form of everything that shapes a search response: the {@link #filterKey}, the
+   * requested fields and facets in sorted order, paging, sort and the response mode flags.
+   */
+  public static String resultKey(SearchCriteria searchCriteria, boolean wildcardSearch) {
+    return shapeKey(searchCriteria, wildcardSearch)
+        .append("|page=").append(searchCriteria.getPageNumber()).append(',')
+        .append(searchCriteria.getPageSize())
+        .toString();
+  }
+
+  /**
+   * Hash of everything a cursor page depends on besides its position: the {@link #resultKey}
+   * without paging, and the sort the pages are read in. A continuation token is only valid for
+   * criteria with the same hash.
+   */
+  public static String cursorHash(SearchCriteria searchCriteria, String sort,
+      boolean wildcardSearch) {
+    return hash(shapeKey(searchCriteria, wildcardSearch).append("|sort=").append(sort).toString());
+  }
+
+  /**
+   * URL safe SHA-256 of a canonical key.
+   */
+  public static String hash(String canonical) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(canonical.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static StringBuilder shapeKey(SearchCriteria searchCriteria, boolean wildcardSearch) {
+    StringBuilder key = new StringBuilder(filterKey(searchCriteria, wildcardSearch));
+    return key.append("|fields=")
+        .append(canonicalValue(nonNull(searchCriteria.getRequestedFields())))
+        .append("|facets=").append(canonicalValue(nonNull(searchCriteria.getFacets())))
+        .append("|order=").append(searchCriteria.getOrderBy()).append(',')
+        .append(searchCriteria.getOrderDirection() == null ? null
+            : searchCriteria.getOrderDirection().toLowerCase())
+        .append("|facetsOnly=").append(searchCriteria.isFacetsOnly())
+        .append("|countOnly=").append(searchCriteria.isCountOnly())
+        .append("|idsOnly=").append(searchCriteria.isIdsOnly())
+        .append("|trackTotalHits=").append(searchCriteria.getTrackTotalHitsUpTo());
+  }
+
+  private static List<String> nonNull(List<String> values) {
+    return values != null ? values : new ArrayList<>();
+  }
+
+  static String canonicalValue(Object value) {
+    if (value instanceof Collection) {
+      List<String> values = new ArrayList<>();
+      for (Object item : (Collection<?>) value) {
+        values.add(String.valueOf(item));
+      }
+      values.sort(null);
+      return values.toString();
+    }
+    return String.valueOf(value);
+  }
+}
@@ -0,0 +1,200 @@
+package com.igot.cb.pores.elasticsearch.cache;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import com.igot.cb.pores.elasticsearch.dto.SearchResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis cache of complete search results.
+ * <p>
+ * Keys are {@code search_result_<index>_<version>_<hash>}, where the hash is the SHA-256 of the
+ * canonical criteria ({@link SearchCriteriaKeys#resultKey}) and the version is the index write
+ * version from {@link IndexVersionService}. A write to the index moves the version on, so older
+ * entries are never read again and simply expire. Cursor pages are not cached since their
+ * continuation token is tied to a point-in-time.
+ */
+@Component
+@Slf4j
+public class SearchResultCache {
+
+  private static final String KEY_PREFIX = "search_result_";
+  private static final String METRIC_PREFIX = "es.search.result.cache.";
+
+  @Autowired
+  private RedisTemplate<String, SearchResult> redisTemplate;
+
+  @Autowired
+  private IndexVersionService indexVersionService;
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Value("${search.result.cache.enabled}")
+  private boolean enabled;
+
+  @Value("${search.result.redis.ttl}")
+  private long ttlSeconds;
+
+  @Value("${elastic.search.wildcard.enabled}")
+  private boolean wildcardSearchEnabled;
+
+  private Meter hits;
+  private Meter misses;
+  private Histogram keySize;
+  private ExecutorService writeExecutor;
+
+  @PostConstruct
+  public void init() {
+    hits = metricRegistry.meter(METRIC_PREFIX + "hits");
+    misses = metricRegistry.meter(METRIC_PREFIX + "misses");
+    keySize = metricRegistry.histogram(METRIC_PREFIX + "key.size");
+    metricRegistry.register(METRIC_PREFIX + "hit.ratio", new RatioGauge() {
+      @Override
+      protected Ratio getRatio() {
+        return Ratio.of(hits.getFiveMinuteRate(),
+            hits.getFiveMinuteRate() + misses.getFiveMinuteRate());
+      }
+    });
+    // Writes from Elasticsearch callbacks must not block the client I/O threads; when Redis
+    // falls behind, results are simply not cached.
+    writeExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(1000), runnable -> {
+      Thread thread = new Thread(runnable, "search-result-cache-writer");
+      thread.setDaemon(true);
+      return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    writeExecutor.shutdown();
+  }
+
+  /**
+   * Cache key of the criteria at the current index version, or null when the result must not
+   * be cached.
+   */
+  public String key(String index, SearchCriteria searchCriteria) {
+    return keys(index, Collections.singletonList(searchCriteria)).get(0);
+  }
+
+  /**
+   * Cache key of the criteria at an index version the caller has already read.
+   */
+  public String key(String index, SearchCriteria searchCriteria, long indexVersion) {
+    return keys(index, Collections.singletonList(searchCriteria), indexVersion).get(0);
+  }
+
+  /**
+   * Cache keys of several criteria, reading the index version once. Entries are null where the
+   * result must not be cached.
+   */
+  public List<String> keys(String index, List<SearchCriteria> searchCriteriaList) {
+    return keys(index, searchCriteriaList, enabled ? indexVersionService.currentVersion(index)
+        : IndexVersionService.UNKNOWN_VERSION);
+  }
+
+  private List<String> keys(String index, List<SearchCriteria> searchCriteriaList,
+      long indexVersion) {
+    List<String> keys = new ArrayList<>(searchCriteriaList.size());
+    long version = enabled ? indexVersion : IndexVersionService.UNKNOWN_VERSION;
+    for (SearchCriteria searchCriteria : searchCriteriaList) {
+      if (version == IndexVersionService.UNKNOWN_VERSION || !isCacheable(searchCriteria)) {
+        keys.add(null);
+        continue;
+      }
+      String key = KEY_PREFIX + index + '_' + version + '_' + SearchCriteriaKeys.hash(
+          SearchCriteriaKeys.resultKey(searchCriteria, wildcardSearchEnabled));
+      keySize.update(key.length());
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  public SearchResult get(String key) {
+    return multiGet(Collections.singletonList(key)).get(0);
+  }
+
+  /**
+   * Cached results in key order, with null for null keys, misses and Redis failures.
+   */
+  public List<SearchResult> multiGet(List<String> keys) {
+    List<SearchResult> results = new ArrayList<>(Collections.nCopies(keys.size(), null));
+    List<String> lookupKeys = new ArrayList<>();
+    List<Integer> positions = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      if (keys.get(i) != null) {
+        lookupKeys.add(keys.get(i));
+        positions.add(i);
+      }
+    }
+    if (lookupKeys.isEmpty()) {
+      return results;
+    }
+    List<SearchResult> cached = null;
+    try {
+      cached = redisTemplate.opsForValue().multiGet(lookupKeys);
+    } catch (Exception e) {
+      log.error("Error while reading cached search results: {}", e.getMessage());
+    }
+    for (int i = 0; i < lookupKeys.size(); i++) {
+      SearchResult result = cached != null ? cached.get(i) : null;
+      if (result != null) {
+        hits.mark();
+        results.set(positions.get(i), result);
+      } else {
+        misses.mark();
+      }
+    }
+    return results;
+  }
+
+  public void put(String key, SearchResult searchResult) {
+    if (key == null || searchResult == null) {
+      return;
+    }
+    try {
+      redisTemplate.opsForValue().set(key, searchResult, ttlSeconds, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      log.error("Error while caching search result: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Same as {@link #put} but off the calling thread, for use from asynchronous callbacks.
+   */
+  public void putAsync(String key, SearchResult searchResult) {
+    if (key == null || searchResult == null) {
+      return;
+    }
+    try {
+      writeExecutor.execute(() -> put(key, searchResult));
+    } catch (RejectedExecutionException e) {
+      log.debug("Search result cache writer is shut down");
+    }
+  }
+
+  private boolean isCacheable(SearchCriteria searchCriteria) {
+    return searchCriteria != null && (searchCriteria.isFacetsOnly() || searchCriteria.isCountOnly()
+        || (!searchCriteria.isUseCursor() && searchCriteria.getCursor() == null));
+  }
+}
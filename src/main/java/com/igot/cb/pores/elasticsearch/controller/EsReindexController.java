@@ -0,0 +1,45 @@
+package com.igot.cb.pores.elasticsearch.controller;
+
+import com.igot.cb.pores.dto.CustomResponse;
+import com.igot.cb.pores.elasticsearch.reindex.EsReindexJob;
+import com.igot.cb.pores.util.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/esReindex")
+public class EsReindexController {
+
+  @Autowired
+  private EsReindexJob reindexJob;
+
+  @PostMapping("/{index}/start")
+  public ResponseEntity<CustomResponse> start(@PathVariable String index) {
+    CustomResponse response = new CustomResponse();
+    response.getResult().put(Constants.RESULT, reindexJob.start(index));
+    response.setResponseCode(HttpStatus.ACCEPTED);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+
+  @PostMapping("/{index}/resume")
+  public ResponseEntity<CustomResponse> resume(@PathVariable String index) {
+    CustomResponse response = new CustomResponse();
+    response.getResult().put(Constants.RESULT, reindexJob.resume(index));
+    response.setResponseCode(HttpStatus.ACCEPTED);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+
+  @GetMapping("/{index}/status")
+  public ResponseEntity<CustomResponse> status(@PathVariable String index) {
+    CustomResponse response = new CustomResponse();
+    response.getResult().put(Constants.RESULT, reindexJob.getStatus(index));
+    response.setResponseCode(HttpStatus.OK);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+}
@@ -0,0 +1,51 @@
+package com.igot.cb.pores.elasticsearch.controller;
+
+import com.igot.cb.pores.dto.CustomResponse;
+import com.igot.cb.pores.elasticsearch.service.EsUtilService;
+import com.igot.cb.pores.elasticsearch.service.RequestsPerSecond;
+import com.igot.cb.pores.util.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/esTask")
+public class EsTaskController {
+
+  @Autowired
+  private EsUtilService esUtilService;
+
+  @GetMapping("/{taskId}")
+  public ResponseEntity<CustomResponse> status(@PathVariable String taskId) {
+    CustomResponse response = new CustomResponse();
+    response.getResult().put(Constants.RESULT, esUtilService.getTaskStatus(taskId));
+    response.setResponseCode(HttpStatus.OK);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+
+  @PostMapping("/{taskId}/cancel")
+  public ResponseEntity<CustomResponse> cancel(@PathVariable String taskId) {
+    esUtilService.cancelTask(taskId);
+    CustomResponse response = new CustomResponse();
+    response.getResult().put(Constants.TASK_ID, taskId);
+    response.setResponseCode(HttpStatus.OK);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+
+  @PostMapping("/{taskId}/rethrottle")
+  public ResponseEntity<CustomResponse> rethrottle(@PathVariable String taskId,
+      @RequestParam float requestsPerSecond) {
+    RequestsPerSecond.validate(requestsPerSecond);
+    esUtilService.rethrottleDeleteTask(taskId, requestsPerSecond);
+    CustomResponse response = new CustomResponse();
+    response.getResult().put(Constants.TASK_ID, taskId);
+    response.setResponseCode(HttpStatus.OK);
+    return new ResponseEntity<>(response, response.getResponseCode());
+  }
+}
@@ -0,0 +1,32 @@
+package com.igot.cb.pores.elasticsearch.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of one criteria of a batch search; either a result or an error, never both.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchSearchResult implements Serializable {
+
+  private int status;
+  private SearchResult result;
+  private String error;
+
+  public static BatchSearchResult success(SearchResult result) {
+    return new BatchSearchResult(HttpStatus.OK.value(), result, null);
+  }
+
+  public static BatchSearchResult failure(int status, String error) {
+    return new BatchSearchResult(status, null, error);
+  }
+}
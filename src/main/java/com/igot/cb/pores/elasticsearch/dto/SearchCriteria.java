@@ -28,4 +28,35 @@ public class SearchCriteria {
   private String searchString;
 
   private List<String> facets;
+
+  /**
+   * Pages with a point-in-time and search_after instead of from/size.
+   */
+  private boolean useCursor;
+
+  /**
+   * Continuation token returned as nextCursor by the previous cursor page.
+   */
+  private String cursor;
+
+  /**
+   * Returns only facets and the total count; served from the facet cache when it is current.
+   */
+  private boolean facetsOnly;
+
+  /**
+   * Returns only the total count: no hits, no source and no facets.
+   */
+  private boolean countOnly;
+
+  /**
+   * Returns the ids of the matching documents as data instead of their source.
+   */
+  private boolean idsOnly;
+
+  /**
+   * Counts matches exactly up to this many and reports a lower bound above it; 0 skips
+   * counting. Defaults to elastic.search.track.total.hits.up.to, or exact for count-only.
+   */
+  private Integer trackTotalHitsUpTo;
 }
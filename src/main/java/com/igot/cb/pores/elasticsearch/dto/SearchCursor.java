@@ -0,0 +1,30 @@
+package com.igot.cb.pores.elasticsearch.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Contents of the opaque continuation token handed out for cursor paging.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchCursor {
+
+  @JsonProperty("pit")
+  private String pointInTimeId;
+
+  @JsonProperty("after")
+  private Object[] searchAfter;
+
+  /**
+   * {@link com.igot.cb.pores.elasticsearch.cache.SearchCriteriaKeys#cursorHash} of the criteria
+   * the token was issued for.
+   */
+  @JsonProperty("q")
+  private String criteriaHash;
+}
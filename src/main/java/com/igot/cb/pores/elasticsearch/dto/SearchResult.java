@@ -1,5 +1,6 @@
 package com.igot.cb.pores.elasticsearch.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -19,4 +20,11 @@ public class SearchResult implements Serializable {
   private JsonNode data;
   private Map<String, List<FacetDTO>> facets;
   private long totalCount;
+  /**
+   * {@code eq} when totalCount is exact, {@code gte} when it is a lower bound.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String totalCountRelation;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String nextCursor;
 }
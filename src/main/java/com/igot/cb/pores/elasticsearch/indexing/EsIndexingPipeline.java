@@ -0,0 +1,319 @@
+package com.igot.cb.pores.elasticsearch.indexing;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.elasticsearch.routing.EsIndexRouter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind pipeline that batches Elasticsearch writes into bulk requests.
+ * <p>
+ * Writes are queued per document ({@code index/id}); a newer write for a document that is still
+ * queued replaces the older one. A single drain thread flushes a batch when it reaches
+ * {@code elastic.indexing.batch.size} items or {@code elastic.indexing.flush.interval.ms} has
+ * passed. When the queue stays full for {@code elastic.indexing.enqueue.timeout.ms} the caller
+ * executes its own write, which throttles producers to the speed of Elasticsearch. Items failing
+ * with 429 or 5xx are retried with exponential backoff unless a newer write superseded them.
+ * <p>
+ * After a batch the write version of every touched index is bumped, once right away and once
+ * more after {@code elastic.indexing.version.bump.delay.ms} when the writes have become
+ * searchable, so caches computed in between are not served.
+ */
+@Component
+@Slf4j
+public class EsIndexingPipeline {
+
+  private static final String METRIC_PREFIX = "es.indexing.";
+
+  @Autowired
+  private RestHighLevelClient elasticsearchClient;
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Autowired
+  private IndexVersionService indexVersionService;
+
+  @Autowired
+  private EsIndexRouter indexRouter;
+
+  @Value("${elastic.indexing.queue.capacity}")
+  private int queueCapacity;
+
+  @Value("${elastic.indexing.batch.size}")
+  private int batchSize;
+
+  @Value("${elastic.indexing.flush.interval.ms}")
+  private long flushIntervalMs;
+
+  @Value("${elastic.indexing.enqueue.timeout.ms}")
+  private long enqueueTimeoutMs;
+
+  @Value("${elastic.indexing.max.retries}")
+  private int maxRetries;
+
+  @Value("${elastic.indexing.retry.backoff.ms}")
+  private long retryBackoffMs;
+
+  @Value("${elastic.indexing.shutdown.timeout.ms}")
+  private long shutdownTimeoutMs;
+
+  @Value("${elastic.indexing.version.bump.delay.ms}")
+  private long versionBumpDelayMs;
+
+  private BlockingQueue<String> queue;
+  private final ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Long> latestSequence = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+
+  private volatile boolean running;
+  private Thread drainThread;
+  private ScheduledExecutorService retryExecutor;
+
+  private Timer batchLatency;
+  private Meter indexedItems;
+  private Meter failedItems;
+  private Meter retriedItems;
+  private Meter callerWrites;
+
+  @PostConstruct
+  public void init() {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    metricRegistry.register(METRIC_PREFIX + "queue.depth", (Gauge<Integer>) queue::size);
+    batchLatency = metricRegistry.timer(METRIC_PREFIX + "batch.latency");
+    indexedItems = metricRegistry.meter(METRIC_PREFIX + "items.indexed");
+    failedItems = metricRegistry.meter(METRIC_PREFIX + "items.failed");
+    retriedItems = metricRegistry.meter(METRIC_PREFIX + "items.retried");
+    callerWrites = metricRegistry.meter(METRIC_PREFIX + "items.caller.executed");
+    retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "es-indexing-retry");
+      thread.setDaemon(true);
+      return thread;
+    });
+    running = true;
+    drainThread = new Thread(this::drain, "es-indexing-drain");
+    drainThread.start();
+  }
+
+  /**
+   * Queues a write and returns immediately unless the queue is full.
+   */
+  public void submit(DocWriteRequest<?> request) {
+    String key = request.index() + "/" + request.id();
+    PendingWrite write = new PendingWrite(key, request, sequence.incrementAndGet(), 0);
+    latestSequence.put(key, write.sequence);
+    enqueue(write);
+  }
+
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    log.info("EsIndexingPipeline::shutdown: flushing {} queued writes", queue.size());
+    running = false;
+    retryExecutor.shutdown();
+    try {
+      retryExecutor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+      drainThread.join(shutdownTimeoutMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (!queue.isEmpty()) {
+      log.error("EsIndexingPipeline::shutdown: {} writes were not flushed", queue.size());
+    }
+  }
+
+  private void enqueue(PendingWrite write) {
+    if (!running) {
+      executeBatch(Collections.singletonList(write));
+      return;
+    }
+    // Decided atomically with the put, so a retry can never replace a newer write of the document
+    AtomicBoolean queued = new AtomicBoolean();
+    PendingWrite kept = pending.compute(write.key, (key, current) -> {
+      if (current != null) {
+        queued.set(true);
+        return current.sequence > write.sequence ? current : write;
+      }
+      Long latest = latestSequence.get(key);
+      return latest != null && latest > write.sequence ? null : write;
+    });
+    if (queued.get() || kept == null) {
+      // Either an older write for the same document is still queued and will carry the newest
+      // one, or this is a retry that a newer write has superseded.
+      return;
+    }
+    try {
+      if (queue.offer(write.key, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    PendingWrite latest = pending.remove(write.key);
+    if (latest != null) {
+      callerWrites.mark();
+      executeBatch(Collections.singletonList(latest));
+    }
+  }
+
+  private void drain() {
+    while (running || !queue.isEmpty()) {
+      try {
+        String key = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (key == null) {
+          continue;
+        }
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        addPending(key, batch);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+          long remaining = deadline - System.nanoTime();
+          key = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (key == null) {
+            break;
+          }
+          addPending(key, batch);
+        }
+        if (!batch.isEmpty()) {
+          executeBatch(batch);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Exception e) {
+        log.error("EsIndexingPipeline::drain: unexpected error", e);
+      }
+    }
+  }
+
+  private void addPending(String key, List<PendingWrite> batch) {
+    PendingWrite write = pending.remove(key);
+    if (write != null) {
+      batch.add(write);
+    }
+  }
+
+  private void executeBatch(List<PendingWrite> batch) {
+    List<DocWriteRequest<?>> requests = new ArrayList<>(batch.size());
+    batch.forEach(write -> requests.add(write.request));
+    indexRouter.routeToOwningIndices(requests);
+    BulkRequest bulkRequest = new BulkRequest();
+    requests.forEach(bulkRequest::add);
+    Timer.Context timerContext = batchLatency.time();
+    try {
+      BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+      BulkItemResponse[] items = bulkResponse.getItems();
+      Set<String> writtenIndices = new HashSet<>();
+      for (int i = 0; i < items.length; i++) {
+        if (items[i].isFailed()) {
+          onFailure(batch.get(i), items[i].getFailureMessage(), items[i].status());
+        } else {
+          onSuccess(batch.get(i));
+          writtenIndices.add(indexRouter.logicalIndexOf(batch.get(i).request.index()));
+        }
+      }
+      bumpVersions(writtenIndices);
+    } catch (Exception e) {
+      log.error("Issue while bulk indexing to es: {}", e.getMessage());
+      batch.forEach(write -> onFailure(write, e.getMessage(), null));
+    } finally {
+      timerContext.stop();
+    }
+  }
+
+  private void bumpVersions(Set<String> indices) {
+    if (indices.isEmpty()) {
+      return;
+    }
+    indices.forEach(indexVersionService::bump);
+    try {
+      retryExecutor.schedule(() -> indices.forEach(indexVersionService::bump),
+          versionBumpDelayMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      log.debug("Skipping delayed version bump during shutdown");
+    }
+  }
+
+  private void onSuccess(PendingWrite write) {
+    indexedItems.mark();
+    latestSequence.remove(write.key, write.sequence);
+  }
+
+  private void onFailure(PendingWrite write, String reason, RestStatus status) {
+    boolean retryable = status == null || status == RestStatus.TOO_MANY_REQUESTS
+        || status.getStatus() >= 500;
+    if (!retryable || write.attempt >= maxRetries) {
+      failedItems.mark();
+      latestSequence.remove(write.key, write.sequence);
+      log.error("Failed to index {} after {} attempts: {}", write.key, write.attempt + 1, reason);
+      return;
+    }
+    retriedItems.mark();
+    PendingWrite retry = new PendingWrite(write.key, write.request, write.sequence,
+        write.attempt + 1);
+    long delay = retryBackoffMs << write.attempt;
+    try {
+      retryExecutor.schedule(() -> resubmit(retry), delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      resubmit(retry);
+    }
+  }
+
+  /**
+   * Queues the retry unless a newer write of the document was submitted meanwhile; the check is
+   * repeated inside {@link #enqueue} where it is atomic with the put.
+   */
+  private void resubmit(PendingWrite retry) {
+    Long latest = latestSequence.get(retry.key);
+    if (latest != null && latest == retry.sequence) {
+      enqueue(retry);
+    }
+  }
+
+  private static final class PendingWrite {
+
+    private final String key;
+    private final DocWriteRequest<?> request;
+    private final long sequence;
+    private final int attempt;
+
+    private PendingWrite(String key, DocWriteRequest<?> request, long sequence, int attempt) {
+      this.key = key;
+      this.request = request;
+      this.sequence = sequence;
+      this.attempt = attempt;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.igot.cb.pores.elasticsearch.projection;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one compiled {@link FieldProjection} per Elasticsearch index.
+ * <p>
+ * The required-fields files are read once at startup and re-read by a background poller only
+ * when their last-modified time changes, so the write path never touches the classpath.
+ */
+@Component
+@Slf4j
+public class EsFieldProjectionRegistry {
+
+  private static final String CLASSPATH_PREFIX = "classpath:";
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private ResourceLoader resourceLoader;
+
+  @Value("#{${elastic.index.required.field.mapping}}")
+  private Map<String, String> requiredFieldFileMapping;
+
+  @Value("${elastic.required.field.reload.interval.ms}")
+  private long reloadIntervalMs;
+
+  private final Map<String, LoadedProjection> projections = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService reloadExecutor;
+
+  @PostConstruct
+  public void init() {
+    requiredFieldFileMapping.forEach(this::load);
+    if (reloadIntervalMs > 0) {
+      reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "es-projection-reload");
+        thread.setDaemon(true);
+        return thread;
+      });
+      reloadExecutor.scheduleWithFixedDelay(this::reloadChanged, reloadIntervalMs,
+          reloadIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (reloadExecutor != null) {
+      reloadExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Projects the document onto the whitelist of the given index. Documents for indices without
+   * a configured whitelist are returned unchanged.
+   */
+  public Map<String, Object> project(String esIndexName, Map<String, Object> document) {
+    FieldProjection projection = getProjection(esIndexName);
+    if (projection == null) {
+      log.debug("No field projection configured for index {}", esIndexName);
+      return document;
+    }
+    return projection.project(document);
+  }
+
+  public FieldProjection getProjection(String esIndexName) {
+    LoadedProjection loaded = projections.get(esIndexName);
+    return loaded == null ? null : loaded.projection;
+  }
+
+  private void reloadChanged() {
+    requiredFieldFileMapping.forEach((index, path) -> {
+      try {
+        LoadedProjection loaded = projections.get(index);
+        long lastModified = lastModified(resolve(path));
+        if (loaded == null || lastModified != loaded.lastModified) {
+          log.info("Required field file {} changed, reloading projection for {}", path, index);
+          load(index, path);
+        }
+      } catch (Exception e) {
+        log.error("Error while checking required field file {}: {}", path, e.getMessage());
+      }
+    });
+  }
+
+  private void load(String index, String path) {
+    Resource resource = resolve(path);
+    try (InputStream inputStream = resource.getInputStream()) {
+      long lastModified = lastModified(resource);
+      Map<String, Object> mapping = objectMapper.readValue(inputStream,
+          new TypeReference<Map<String, Object>>() {
+          });
+      projections.put(index, new LoadedProjection(FieldProjection.compile(mapping), lastModified));
+      log.info("Loaded field projection for index {} from {}", index, path);
+    } catch (Exception e) {
+      log.error("Error while loading required field file {} for index {}: {}", path, index,
+          e.getMessage());
+    }
+  }
+
+  private Resource resolve(String path) {
+    String location = ResourcePatternUtils.isUrl(path) ? path : CLASSPATH_PREFIX + path;
+    return resourceLoader.getResource(location);
+  }
+
+  private long lastModified(Resource resource) {
+    try {
+      return resource.lastModified();
+    } catch (Exception e) {
+      return -1L;
+    }
+  }
+
+  private static final class LoadedProjection {
+
+    private final FieldProjection projection;
+    private final long lastModified;
+
+    private LoadedProjection(FieldProjection projection, long lastModified) {
+      this.projection = projection;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.igot.cb.pores.elasticsearch.projection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled whitelist of the fields that may be written to an Elasticsearch index.
+ * <p>
+ * Built once from an ES required-fields mapping file. Fields declared as {@code nested} with
+ * {@code properties} are projected recursively (e.g. {@code competencies.area}); every other
+ * field, including plain {@code object} fields, is kept as a whole subtree.
+ */
+public final class FieldProjection {
+
+  private static final String TYPE = "type";
+  private static final String PROPERTIES = "properties";
+  private static final String NESTED = "nested";
+
+  private static final FieldProjection ALL = new FieldProjection(null);
+
+  /**
+   * Allowed fields and their sub projections; {@code null} means the whole subtree is allowed.
+   */
+  private final Map<String, FieldProjection> fields;
+
+  private FieldProjection(Map<String, FieldProjection> fields) {
+    this.fields = fields;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static FieldProjection compile(Map<String, Object> mapping) {
+    Map<String, FieldProjection> compiled = new HashMap<>();
+    for (Map.Entry<String, Object> entry : mapping.entrySet()) {
+      FieldProjection child = ALL;
+      if (entry.getValue() instanceof Map) {
+        Map<String, Object> definition = (Map<String, Object>) entry.getValue();
+        if (NESTED.equals(definition.get(TYPE)) && definition.get(PROPERTIES) instanceof Map) {
+          child = compile((Map<String, Object>) definition.get(PROPERTIES));
+        }
+      }
+      compiled.put(entry.getKey(), child);
+    }
+    return new FieldProjection(Collections.unmodifiableMap(compiled));
+  }
+
+  /**
+   * Returns a new document holding only the whitelisted fields. The input is left untouched.
+   */
+  public Map<String, Object> project(Map<String, Object> document) {
+    if (fields == null || document == null) {
+      return document;
+    }
+    Map<String, Object> projected = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : document.entrySet()) {
+      FieldProjection child = fields.get(entry.getKey());
+      if (child != null) {
+        projected.put(entry.getKey(), child.projectValue(entry.getValue()));
+      }
+    }
+    return projected;
+  }
+
+  /**
+   * Checks a dotted field path such as {@code competencies.area} against the whitelist.
+   */
+  public boolean isAllowed(String path) {
+    FieldProjection current = this;
+    for (String part : path.split("\\.")) {
+      if (current.fields == null) {
+        return true;
+      }
+      current = current.fields.get(part);
+      if (current == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object projectValue(Object value) {
+    if (fields == null) {
+      return value;
+    }
+    if (value instanceof Map) {
+      return project((Map<String, Object>) value);
+    }
+    if (value instanceof List) {
+      List<Object> projected = new ArrayList<>(((List<?>) value).size());
+      for (Object item : (List<?>) value) {
+        projected.add(item instanceof Map ? project((Map<String, Object>) item) : item);
+      }
+      return projected;
+    }
+    return value;
+  }
+}
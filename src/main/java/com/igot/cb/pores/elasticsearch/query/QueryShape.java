@@ -0,0 +1,115 @@
+package com.igot.cb.pores.elasticsearch.query;
+
+import com.igot.cb.pores.util.Constants;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Query structure compiled once per criteria shape: which fields are filtered and with what kind
+ * of value, the sort, the requested fields or no source at all, and the facets. Binding a request only fills in the
+ * filter values and the search string.
+ */
+final class QueryShape {
+
+  private static final String AGG_SUFFIX = "_agg";
+  private static final int FACET_SIZE = 250;
+
+  enum ValueKind {
+    BOOLEAN, LIST, STRING, UNSUPPORTED;
+
+    static ValueKind of(Object value) {
+      if (value instanceof Boolean) {
+        return BOOLEAN;
+      } else if (value instanceof Collection) {
+        return LIST;
+      } else if (value instanceof String) {
+        return STRING;
+      }
+      return UNSUPPORTED;
+    }
+  }
+
+  private final List<FilterClause> filters = new ArrayList<>();
+  private final String sortField;
+  private final SortOrder sortOrder;
+  private final String[] includes;
+  private final boolean withSource;
+  private final List<String> facets;
+  private final String[] facetFields;
+
+  QueryShape(Map<String, ValueKind> filterKinds, String orderBy, String orderDirection,
+      List<String> requestedFields, boolean withSource, List<String> facets) {
+    filterKinds.forEach((field, kind) -> {
+      if (kind == ValueKind.BOOLEAN) {
+        filters.add(new FilterClause(field, field, kind));
+      } else if (kind != ValueKind.UNSUPPORTED) {
+        filters.add(new FilterClause(field, field + Constants.KEYWORD, kind));
+      }
+    });
+    this.sortField = orderBy != null ? orderBy + Constants.KEYWORD : null;
+    this.sortOrder = Constants.ASC.equals(orderDirection) ? SortOrder.ASC : SortOrder.DESC;
+    this.includes = requestedFields != null ? requestedFields.toArray(new String[0]) : null;
+    this.withSource = withSource;
+    this.facets = facets;
+    this.facetFields = new String[facets.size()];
+    for (int i = 0; i < facets.size(); i++) {
+      facetFields[i] = facets.get(i) + Constants.KEYWORD;
+    }
+  }
+
+  /**
+   * Builds the request for one set of filter values. Every filter goes into filter context; the
+   * caller adds scoring clauses to the returned bool query.
+   */
+  SearchSourceBuilder bind(Map<String, Object> filterValues, BoolQueryBuilder boolQueryBuilder) {
+    for (FilterClause clause : filters) {
+      Object value = filterValues.get(clause.field);
+      if (clause.kind == ValueKind.BOOLEAN) {
+        boolQueryBuilder.filter(QueryBuilders.termQuery(clause.target, value));
+      } else if (clause.kind == ValueKind.LIST) {
+        boolQueryBuilder.filter(
+            QueryBuilders.termsQuery(clause.target, ((Collection<?>) value).toArray()));
+      } else {
+        boolQueryBuilder.filter(QueryBuilders.termsQuery(clause.target, value));
+      }
+    }
+    SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder().query(boolQueryBuilder);
+    if (sortField != null) {
+      searchSourceBuilder.sort(SortBuilders.fieldSort(sortField).order(sortOrder));
+    }
+    if (!withSource) {
+      searchSourceBuilder.fetchSource(false);
+    } else if (includes == null) {
+      // Get all fields in response
+      searchSourceBuilder.fetchSource(null);
+    } else {
+      searchSourceBuilder.fetchSource(includes, null);
+    }
+    for (int i = 0; i < facetFields.length; i++) {
+      searchSourceBuilder.aggregation(AggregationBuilders.terms(facets.get(i) + AGG_SUFFIX)
+          .field(facetFields[i]).size(FACET_SIZE));
+    }
+    return searchSourceBuilder;
+  }
+
+  private static final class FilterClause {
+
+    private final String field;
+    private final String target;
+    private final ValueKind kind;
+
+    private FilterClause(String field, String target, ValueKind kind) {
+      this.field = field;
+      this.target = target;
+      this.kind = kind;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.igot.cb.pores.elasticsearch.query;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import com.igot.cb.pores.elasticsearch.query.QueryShape.ValueKind;
+import com.igot.cb.pores.exceptions.CustomException;
+import com.igot.cb.pores.util.Constants;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns search criteria into Elasticsearch requests.
+ * <p>
+ * Equality filters never affect relevance, so they are placed in filter context where
+ * Elasticsearch skips scoring and can cache their bitsets across requests; only the search string
+ * is scored. The structure of a request is compiled once per criteria shape (filtered fields and
+ * their value kinds, sort, requested fields and facets) and reused, binding just the values.
+ * <p>
+ * Count-only and id-only criteria go through the same planning, so they match exactly the
+ * documents a full search would; they just drop the source, and for counts the sort and facets.
+ */
+@Component
+@Slf4j
+public class SearchQueryPlanner {
+
+  private static final String METRIC_PREFIX = "es.query.shape.cache.";
+  private static final String[] DEFAULT_NGRAM_SEARCH_FIELDS =
+      {"searchTags.ngram", "title.ngram", "objective.ngram"};
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Value("${elastic.search.wildcard.enabled}")
+  private boolean wildcardSearchEnabled;
+
+  @Value("${elastic.search.track.total.hits.up.to}")
+  private int defaultTrackTotalHitsUpTo;
+
+  @Value("${elastic.query.shape.cache.max.entries}")
+  private int maxShapes;
+
+  @Value("#{${elastic.search.ngram.fields.mapping}}")
+  private Map<String, String> ngramFieldMapping;
+
+  private final Map<String, String[]> ngramSearchFields = new HashMap<>();
+  private Map<String, QueryShape> shapes;
+  private Meter hits;
+  private Meter misses;
+
+  @PostConstruct
+  public void init() {
+    shapes = Collections.synchronizedMap(new LinkedHashMap<String, QueryShape>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, QueryShape> eldest) {
+        return size() > maxShapes;
+      }
+    });
+    ngramFieldMapping.forEach((index, fields) ->
+        ngramSearchFields.put(index, fields.trim().split("\\s*,\\s*")));
+    hits = metricRegistry.meter(METRIC_PREFIX + "hits");
+    misses = metricRegistry.meter(METRIC_PREFIX + "misses");
+  }
+
+  /**
+   * Plans the request for the criteria on the given entity index, aggregating only the given
+   * facets.
+   */
+  public SearchSourceBuilder plan(String esIndexName, SearchCriteria searchCriteria,
+      List<String> facets) {
+    Map<String, Object> filterValues = searchCriteria.getFilterCriteriaMap() != null
+        ? searchCriteria.getFilterCriteriaMap() : Collections.emptyMap();
+    boolean countOnly = searchCriteria.isCountOnly();
+    List<String> aggregatedFacets = facets != null && !countOnly ? facets
+        : Collections.<String>emptyList();
+    if (searchCriteria.getRequestedFields() != null
+        && searchCriteria.getRequestedFields().isEmpty()) {
+      log.error("Please specify at least one field to include in the results.");
+    }
+    Map<String, ValueKind> filterKinds = new TreeMap<>();
+    filterValues.forEach((field, value) -> filterKinds.put(field, ValueKind.of(value)));
+    String orderBy = !countOnly && isNotBlank(searchCriteria.getOrderBy())
+        && isNotBlank(searchCriteria.getOrderDirection()) ? searchCriteria.getOrderBy() : null;
+    boolean withSource = !countOnly && !searchCriteria.isIdsOnly();
+    String shapeKey = filterKinds + "|" + orderBy + ":" + searchCriteria.getOrderDirection()
+        + "|" + (withSource ? searchCriteria.getRequestedFields() : "-") + "|" + aggregatedFacets;
+    QueryShape shape = shapes.get(shapeKey);
+    if (shape == null) {
+      misses.mark();
+      shape = new QueryShape(filterKinds, orderBy, searchCriteria.getOrderDirection(),
+          searchCriteria.getRequestedFields(), withSource, aggregatedFacets);
+      shapes.put(shapeKey, shape);
+    } else {
+      hits.mark();
+    }
+    BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
+    addSearchString(esIndexName, searchCriteria.getSearchString(), boolQueryBuilder);
+    return shape.bind(filterValues, boolQueryBuilder)
+        .trackTotalHitsUpTo(trackTotalHitsUpTo(searchCriteria));
+  }
+
+  private int trackTotalHitsUpTo(SearchCriteria searchCriteria) {
+    Integer requested = searchCriteria.getTrackTotalHitsUpTo();
+    if (requested == null) {
+      return searchCriteria.isCountOnly() ? Integer.MAX_VALUE : defaultTrackTotalHitsUpTo;
+    }
+    if (requested < 0) {
+      throw new CustomException(Constants.ERROR, "trackTotalHitsUpTo must not be negative",
+          HttpStatus.BAD_REQUEST);
+    }
+    return requested;
+  }
+
+  private void addSearchString(String esIndexName, String searchString,
+      BoolQueryBuilder boolQueryBuilder) {
+    if (isNotBlank(searchString)) {
+      if (wildcardSearchEnabled) {
+        boolQueryBuilder.must(
+            QueryBuilders.boolQuery()
+                .should(new WildcardQueryBuilder("searchTags.keyword", "*" + searchString + "*")));
+      } else {
+        boolQueryBuilder.must(
+            QueryBuilders.multiMatchQuery(searchString,
+                    ngramSearchFields.getOrDefault(esIndexName, DEFAULT_NGRAM_SEARCH_FIELDS))
+                .operator(Operator.AND));
+      }
+    }
+  }
+
+  private boolean isNotBlank(String value) {
+    return value != null && !value.trim().isEmpty();
+  }
+}
@@ -0,0 +1,490 @@
+package com.igot.cb.pores.elasticsearch.reindex;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.elasticsearch.projection.EsFieldProjectionRegistry;
+import com.igot.cb.pores.elasticsearch.reindex.ReindexSource.ReindexDocument;
+import com.igot.cb.pores.elasticsearch.routing.EsIndexRouter;
+import com.igot.cb.pores.exceptions.CustomException;
+import com.igot.cb.pores.util.Constants;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.params.SetParams;
+
+/**
+ * Rebuilds an entity index from the primary store.
+ * <p>
+ * Every {@link ReindexSource} of the entity is split into key-range partitions of similar size
+ * that worker threads copy page by page (keyset pagination) into a fresh index through
+ * synchronous bulk requests. After each page the partition's last key is committed to a Redis hash, so a job that
+ * failed or whose node went down can be resumed where it stopped. Rows updated while the copy ran
+ * are indexed once more before the entity's read and write aliases are swapped atomically onto
+ * the new index, and rows updated while that catch-up ran are indexed again after the swap.
+ * Previous indices are detached from the aliases but kept for rollback.
+ * <p>
+ * A job holds a Redis lease per entity that is renewed after every page, so only one node runs
+ * or resumes it at a time; a node that loses its lease stops without touching the checkpoint.
+ */
+@Component
+@Slf4j
+public class EsReindexJob {
+
+  private static final String METRIC_PREFIX = "es.reindex.";
+  private static final String CHECKPOINT_KEY_PREFIX = "es_reindex_";
+  private static final String LEASE_KEY_PREFIX = "es_reindex_lease_";
+  private static final String RENEW_LEASE_SCRIPT =
+      "if redis.call('get', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+  private static final String RELEASE_LEASE_SCRIPT =
+      "if redis.call('get', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('del', KEYS[1]) else return 0 end";
+  private static final String TARGET_INDEX = "targetIndex";
+  private static final String STATE = "state";
+  private static final String STARTED_AT = "startedAt";
+  private static final String INDEX = "index";
+  private static final String PARTITION_PREFIX = "partition.";
+  private static final String RUNNING = "RUNNING";
+  private static final String COMPLETED = "COMPLETED";
+  private static final String FAILED = "FAILED";
+  private static final String REFRESH_INTERVAL = "index.refresh_interval";
+  // rows written up to this long before the job started may carry an older updatedOn
+  private static final long CATCH_UP_SKEW_MILLIS = 60000L;
+
+  @Autowired
+  private RestHighLevelClient elasticsearchClient;
+
+  @Autowired
+  private JedisPool jedisPool;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private EsFieldProjectionRegistry projectionRegistry;
+
+  @Autowired
+  private IndexVersionService indexVersionService;
+
+  @Autowired
+  private EsIndexRouter indexRouter;
+
+  @Autowired
+  private MetricRegistry metricRegistry;
+
+  @Autowired
+  private List<ReindexSource> sources;
+
+  @Value("${elastic.reindex.worker.threads}")
+  private int workerThreads;
+
+  @Value("${elastic.reindex.partitions.per.source}")
+  private int partitionsPerSource;
+
+  @Value("${elastic.reindex.page.size}")
+  private int pageSize;
+
+  @Value("${elastic.reindex.lease.ttl.ms}")
+  private long leaseTtlMs;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private volatile String runningIndex;
+  private volatile String leaseToken;
+  private final AtomicInteger remainingPartitions = new AtomicInteger();
+  private volatile String lastError;
+
+  private Meter indexedDocuments;
+  private Timer pageLatency;
+
+  @PostConstruct
+  public void init() {
+    indexedDocuments = metricRegistry.meter(METRIC_PREFIX + "documents.indexed");
+    pageLatency = metricRegistry.timer(METRIC_PREFIX + "page.latency");
+    metricRegistry.register(METRIC_PREFIX + "partitions.remaining",
+        (Gauge<Integer>) remainingPartitions::get);
+  }
+
+  /**
+   * Creates a fresh index for the entity, partitions its sources and starts copying in the
+   * background.
+   */
+  public Map<String, Object> start(String index) {
+    validateIndex(index);
+    acquire(index);
+    try {
+      if (RUNNING.equals(readCheckpoint(index).get(STATE))) {
+        throw new CustomException(Constants.ERROR,
+            "An interrupted reindex job exists, resume it instead", HttpStatus.CONFLICT);
+      }
+      // ends in -000001 so that rollover can derive the name of the next index
+      String targetIndex = index + "-"
+          + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + "-000001";
+      elasticsearchClient.indices().create(new CreateIndexRequest(targetIndex)
+          .settings(Settings.builder().put(REFRESH_INTERVAL, "-1")), RequestOptions.DEFAULT);
+      Map<String, String> checkpoint = new LinkedHashMap<>();
+      checkpoint.put(INDEX, index);
+      checkpoint.put(TARGET_INDEX, targetIndex);
+      checkpoint.put(STATE, RUNNING);
+      checkpoint.put(STARTED_AT, String.valueOf(System.currentTimeMillis()));
+      for (ReindexSource source : sourcesOf(index)) {
+        List<String> upperBounds = source.findPartitionUpperBounds(partitionsPerSource);
+        String lowerKey = "";
+        for (int i = 0; i < upperBounds.size(); i++) {
+          // a partition starts after the upper key of the previous one
+          checkpoint.put(PARTITION_PREFIX + source.getName() + "." + i, objectMapper
+              .writeValueAsString(new Partition(source.getName(), upperBounds.get(i), lowerKey,
+                  0, false)));
+          lowerKey = upperBounds.get(i);
+        }
+      }
+      try (Jedis jedis = jedisPool.getResource()) {
+        jedis.del(checkpointKey(index));
+        jedis.hset(checkpointKey(index), checkpoint);
+      }
+      log.info("EsReindexJob::start: reindexing {} into {}", index, targetIndex);
+      launch(checkpoint);
+      return getStatus(index);
+    } catch (CustomException e) {
+      release(index);
+      throw e;
+    } catch (Exception e) {
+      release(index);
+      log.error("Failed to start reindex job: {}", e.getMessage());
+      throw new CustomException(Constants.ERROR, "Failed to start reindex job: " + e.getMessage(),
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Continues an interrupted or failed job from the last committed key of every partition.
+   */
+  public Map<String, Object> resume(String index) {
+    validateIndex(index);
+    acquire(index);
+    Map<String, String> checkpoint = readCheckpoint(index);
+    String state = checkpoint.get(STATE);
+    if (!RUNNING.equals(state) && !FAILED.equals(state)) {
+      release(index);
+      throw new CustomException(Constants.ERROR, "No reindex job to resume",
+          HttpStatus.BAD_REQUEST);
+    }
+    updateCheckpoint(index, STATE, RUNNING);
+    checkpoint.put(STATE, RUNNING);
+    log.info("EsReindexJob::resume: resuming reindex into {}", checkpoint.get(TARGET_INDEX));
+    launch(checkpoint);
+    return getStatus(index);
+  }
+
+  public Map<String, Object> getStatus(String index) {
+    validateIndex(index);
+    Map<String, String> checkpoint = readCheckpoint(index);
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put(INDEX, index);
+    status.put(TARGET_INDEX, checkpoint.get(TARGET_INDEX));
+    status.put(STATE, checkpoint.get(STATE));
+    status.put(STARTED_AT, checkpoint.get(STARTED_AT));
+    boolean runningHere = running.get() && index.equals(runningIndex);
+    status.put("runningOnThisNode", runningHere);
+    long indexed = 0;
+    List<Partition> partitions = new ArrayList<>();
+    for (Map.Entry<String, String> entry : checkpoint.entrySet()) {
+      if (entry.getKey().startsWith(PARTITION_PREFIX)) {
+        Partition partition = readPartition(entry.getValue());
+        indexed += partition.getIndexed();
+        partitions.add(partition);
+      }
+    }
+    status.put("indexed", indexed);
+    if (runningHere) {
+      status.put("docsPerSecond", indexedDocuments.getOneMinuteRate());
+    }
+    status.put("partitions", partitions);
+    if (lastError != null && index.equals(runningIndex)) {
+      status.put("error", lastError);
+    }
+    return status;
+  }
+
+  private void validateIndex(String index) {
+    if (!indexRouter.isManaged(index)) {
+      throw new CustomException(Constants.ERROR, "Unknown entity index " + index,
+          HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  private void acquire(String index) {
+    if (!running.compareAndSet(false, true)) {
+      throw new CustomException(Constants.ERROR,
+          "A reindex job is already running for " + runningIndex, HttpStatus.CONFLICT);
+    }
+    String token = UUID.randomUUID().toString();
+    boolean leased;
+    try (Jedis jedis = jedisPool.getResource()) {
+      leased = "OK".equals(jedis.set(leaseKey(index), token,
+          SetParams.setParams().nx().px(leaseTtlMs)));
+    } catch (Exception e) {
+      running.set(false);
+      throw new CustomException(Constants.ERROR,
+          "Failed to take the reindex lease: " + e.getMessage(),
+          HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    if (!leased) {
+      running.set(false);
+      throw new CustomException(Constants.ERROR,
+          "A reindex job for " + index + " is running on another node", HttpStatus.CONFLICT);
+    }
+    leaseToken = token;
+    runningIndex = index;
+  }
+
+  /**
+   * Extends the lease of the running job, failing it when another node has taken the lease
+   * since it expired.
+   */
+  private void renewLease(String index) {
+    Object renewed;
+    try (Jedis jedis = jedisPool.getResource()) {
+      renewed = jedis.eval(RENEW_LEASE_SCRIPT, Collections.singletonList(leaseKey(index)),
+          Arrays.asList(leaseToken, String.valueOf(leaseTtlMs)));
+    }
+    if (!Long.valueOf(1L).equals(renewed)) {
+      throw new LeaseLostException(index);
+    }
+  }
+
+  private void release(String index) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.eval(RELEASE_LEASE_SCRIPT, Collections.singletonList(leaseKey(index)),
+          Collections.singletonList(leaseToken));
+    } catch (Exception e) {
+      log.error("Failed to release the reindex lease of {}: {}", index, e.getMessage());
+    } finally {
+      running.set(false);
+    }
+  }
+
+  private void launch(Map<String, String> checkpoint) {
+    lastError = null;
+    Thread coordinator = new Thread(() -> run(checkpoint), "es-reindex-coordinator");
+    coordinator.setDaemon(true);
+    coordinator.start();
+  }
+
+  private void run(Map<String, String> checkpoint) {
+    String index = checkpoint.get(INDEX);
+    String targetIndex = checkpoint.get(TARGET_INDEX);
+    ExecutorService workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+      Thread thread = new Thread(runnable, "es-reindex-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (Map.Entry<String, String> entry : checkpoint.entrySet()) {
+        if (!entry.getKey().startsWith(PARTITION_PREFIX)) {
+          continue;
+        }
+        Partition partition = readPartition(entry.getValue());
+        if (!partition.isDone()) {
+          remainingPartitions.incrementAndGet();
+          futures.add(CompletableFuture.runAsync(
+              () -> copyPartition(index, entry.getKey(), partition, targetIndex), workers));
+        }
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+      long catchUpStartedAt = System.currentTimeMillis();
+      catchUp(index,
+          new Timestamp(Long.parseLong(checkpoint.get(STARTED_AT)) - CATCH_UP_SKEW_MILLIS),
+          targetIndex);
+      elasticsearchClient.indices().putSettings(new UpdateSettingsRequest(targetIndex)
+          .settings(Settings.builder().putNull(REFRESH_INTERVAL)), RequestOptions.DEFAULT);
+      elasticsearchClient.indices().refresh(new RefreshRequest(targetIndex),
+          RequestOptions.DEFAULT);
+      renewLease(index);
+      indexRouter.swapAliases(index, targetIndex);
+      // writes that reached the old index while the first catch-up ran
+      catchUp(index, new Timestamp(catchUpStartedAt - CATCH_UP_SKEW_MILLIS), targetIndex);
+      elasticsearchClient.indices().refresh(new RefreshRequest(targetIndex),
+          RequestOptions.DEFAULT);
+      indexVersionService.bump(index);
+      updateCheckpoint(index, STATE, COMPLETED);
+      log.info("EsReindexJob::run: {} now points to {}", index, targetIndex);
+    } catch (Exception e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      lastError = cause.getMessage();
+      log.error("Reindex into {} failed: {}", targetIndex, lastError);
+      if (!(cause instanceof LeaseLostException)) {
+        updateCheckpoint(index, STATE, FAILED);
+      }
+    } finally {
+      workers.shutdownNow();
+      remainingPartitions.set(0);
+      release(index);
+    }
+  }
+
+  private void copyPartition(String index, String field, Partition partition,
+      String targetIndex) {
+    try {
+      ReindexSource source = findSource(partition.getSource());
+      while (true) {
+        List<ReindexDocument> documents =
+            source.readPage(partition.getLastKey(), partition.getUpperKey(), pageSize);
+        if (documents.isEmpty()) {
+          partition.setDone(true);
+          updateCheckpoint(index, field, objectMapper.writeValueAsString(partition));
+          return;
+        }
+        bulkIndex(index, documents, targetIndex);
+        renewLease(index);
+        partition.setLastKey(documents.get(documents.size() - 1).getId());
+        partition.setIndexed(partition.getIndexed() + documents.size());
+        updateCheckpoint(index, field, objectMapper.writeValueAsString(partition));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    } finally {
+      remainingPartitions.decrementAndGet();
+    }
+  }
+
+  private void catchUp(String index, Timestamp since, String targetIndex) throws IOException {
+    for (ReindexSource source : sourcesOf(index)) {
+      String lastKey = "";
+      List<ReindexDocument> documents;
+      while (!(documents = source.readUpdatedSince(since, lastKey, pageSize)).isEmpty()) {
+        bulkIndex(index, documents, targetIndex);
+        renewLease(index);
+        lastKey = documents.get(documents.size() - 1).getId();
+      }
+    }
+  }
+
+  private void bulkIndex(String index, List<ReindexDocument> documents, String targetIndex)
+      throws IOException {
+    BulkRequest bulkRequest = new BulkRequest();
+    for (ReindexDocument document : documents) {
+      bulkRequest.add(new IndexRequest(targetIndex).id(document.getId())
+          .source(projectionRegistry.project(index, document.getSource()), XContentType.JSON));
+    }
+    Timer.Context timerContext = pageLatency.time();
+    try {
+      BulkResponse bulkResponse = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+      if (bulkResponse.hasFailures()) {
+        throw new IllegalStateException(bulkResponse.buildFailureMessage());
+      }
+    } finally {
+      timerContext.stop();
+    }
+    indexedDocuments.mark(documents.size());
+  }
+
+  private List<ReindexSource> sourcesOf(String index) {
+    List<ReindexSource> indexSources = new ArrayList<>();
+    for (ReindexSource source : sources) {
+      if (source.getIndexName().equals(index)) {
+        indexSources.add(source);
+      }
+    }
+    return indexSources;
+  }
+
+  private ReindexSource findSource(String name) {
+    for (ReindexSource source : sources) {
+      if (source.getName().equals(name)) {
+        return source;
+      }
+    }
+    throw new IllegalStateException("Unknown reindex source " + name);
+  }
+
+  private Partition readPartition(String json) {
+    try {
+      return objectMapper.readValue(json, Partition.class);
+    } catch (IOException e) {
+      throw new IllegalStateException("Corrupt reindex checkpoint: " + json, e);
+    }
+  }
+
+  private Map<String, String> readCheckpoint(String index) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return jedis.hgetAll(checkpointKey(index));
+    }
+  }
+
+  private void updateCheckpoint(String index, String field, String value) {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.hset(checkpointKey(index), field, value);
+    }
+  }
+
+  private String checkpointKey(String index) {
+    return CHECKPOINT_KEY_PREFIX + index;
+  }
+
+  private String leaseKey(String index) {
+    return LEASE_KEY_PREFIX + index;
+  }
+
+  private static class LeaseLostException extends IllegalStateException {
+
+    LeaseLostException(String index) {
+      super("Reindex lease of " + index + " was taken over by another node");
+    }
+  }
+
+  /**
+   * Progress of one key range; {@code lastKey} is the last key committed to the new index.
+   */
+  @Getter
+  @Setter
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Partition {
+
+    private String source;
+    private String upperKey;
+    private String lastKey;
+    private long indexed;
+    private boolean done;
+  }
+}
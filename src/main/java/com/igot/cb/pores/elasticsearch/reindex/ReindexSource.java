@@ -0,0 +1,59 @@
+package com.igot.cb.pores.elasticsearch.reindex;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A primary-store table that the reindex job copies into Elasticsearch. Rows are read in
+ * ascending key order so that a partition can be resumed after its last committed key.
+ */
+public interface ReindexSource {
+
+  /**
+   * Name used for checkpoints and status; must be stable across restarts.
+   */
+  String getName();
+
+  /**
+   * Logical entity index the documents belong to.
+   */
+  String getIndexName();
+
+  /**
+   * Upper key (inclusive) of each of up to {@code partitions} partitions of similar size, in
+   * ascending order.
+   */
+  List<String> findPartitionUpperBounds(int partitions);
+
+  /**
+   * Next page of documents with a key greater than {@code afterKey} and at most
+   * {@code upperKey}, in ascending key order.
+   */
+  List<ReindexDocument> readPage(String afterKey, String upperKey, int pageSize);
+
+  /**
+   * Next page of documents updated at or after {@code since} with a key greater than
+   * {@code afterKey}, in ascending key order.
+   */
+  List<ReindexDocument> readUpdatedSince(Timestamp since, String afterKey, int pageSize);
+
+  final class ReindexDocument {
+
+    private final String id;
+    private final Map<String, Object> source;
+
+    public ReindexDocument(String id, Map<String, Object> source) {
+      this.id = id;
+      this.source = source;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public Map<String, Object> getSource() {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package com.igot.cb.pores.elasticsearch.routing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.rollover.RolloverRequest;
+import org.elasticsearch.client.indices.rollover.RolloverResponse;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps each logical entity index (for example {@code demand_entity}) to its own physical
+ * indices. Searches go through the {@code <index>_read} alias and writes through the
+ * {@code <index>_write} alias, so an entity's requests only touch that entity's shards and its
+ * indices can be replaced or rolled over without changing callers.
+ * <p>
+ * Entities listed in {@code elastic.index.rollover.entities} get a new write index once the
+ * current one reaches the configured age, document count or primary shard size. Their documents
+ * can then live in older indices behind the read alias, so writes for existing ids are routed to
+ * the index that already holds them.
+ */
+@Component
+@Slf4j
+public class EsIndexRouter {
+
+  public static final String READ_ALIAS_SUFFIX = "_read";
+  public static final String WRITE_ALIAS_SUFFIX = "_write";
+  private static final String FIRST_INDEX_SUFFIX = "-000001";
+
+  @Autowired
+  private RestHighLevelClient elasticsearchClient;
+
+  @Value("${elastic.index.routing.entities}")
+  private String[] entities;
+
+  @Value("${elastic.index.rollover.entities}")
+  private String[] rolloverEntities;
+
+  @Value("${elastic.index.rollover.max.age}")
+  private String rolloverMaxAge;
+
+  @Value("${elastic.index.rollover.max.docs}")
+  private long rolloverMaxDocs;
+
+  @Value("${elastic.index.rollover.max.primary.shard.size}")
+  private String rolloverMaxPrimaryShardSize;
+
+  @Value("${elastic.index.rollover.check.interval.ms}")
+  private long rolloverCheckIntervalMs;
+
+  private ScheduledExecutorService rolloverExecutor;
+
+  public String readAlias(String index) {
+    return isManaged(index) ? index + READ_ALIAS_SUFFIX : index;
+  }
+
+  public String writeAlias(String index) {
+    return isManaged(index) ? index + WRITE_ALIAS_SUFFIX : index;
+  }
+
+  public boolean isManaged(String index) {
+    return Arrays.asList(entities).contains(index);
+  }
+
+  /**
+   * Logical entity of an alias or physical index name, or the name itself when unmanaged.
+   */
+  public String logicalIndexOf(String name) {
+    String logical = null;
+    for (String entity : entities) {
+      if (name.startsWith(entity) && (logical == null || entity.length() > logical.length())) {
+        logical = entity;
+      }
+    }
+    return logical != null ? logical : name;
+  }
+
+  /**
+   * Gives every entity that has no write alias yet its read and write aliases, and starts the
+   * rollover check. An existing concrete index named after the entity keeps serving: it gets
+   * both aliases, or only the read alias next to a fresh {@code <index>-000001} write index for
+   * rollover entities, whose write index name must end in a number. Entities without such an
+   * index get {@code <index>-000001} carrying both aliases. Runs after the index templates are
+   * installed so a new index gets the entity mapping.
+   *
+   * @return the existing indices that were put behind the aliases, which predate the templates
+   */
+  public List<String> bootstrap() {
+    List<String> attachedIndices = new ArrayList<>();
+    for (String entity : entities) {
+      try {
+        if (!elasticsearchClient.indices().existsAlias(
+            new GetAliasesRequest(entity + WRITE_ALIAS_SUFFIX), RequestOptions.DEFAULT)) {
+          if (isConcreteIndex(entity)) {
+            attachLegacyIndex(entity);
+            attachedIndices.add(entity);
+          } else {
+            createIndexWithAliases(entity + FIRST_INDEX_SUFFIX, entity);
+            log.info("Bootstrapped {} with read and write aliases",
+                entity + FIRST_INDEX_SUFFIX);
+          }
+        }
+      } catch (Exception e) {
+        log.error("Failed to bootstrap aliases of {}: {}", entity, e.getMessage());
+      }
+    }
+    if (rolloverEntities.length > 0 && rolloverCheckIntervalMs > 0) {
+      rolloverExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "es-index-rollover");
+        thread.setDaemon(true);
+        return thread;
+      });
+      rolloverExecutor.scheduleWithFixedDelay(this::rolloverAll, rolloverCheckIntervalMs,
+          rolloverCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    return attachedIndices;
+  }
+
+  private boolean isConcreteIndex(String name) throws IOException {
+    return elasticsearchClient.indices().exists(new GetIndexRequest(name), RequestOptions.DEFAULT)
+        && !elasticsearchClient.indices().existsAlias(new GetAliasesRequest(name),
+        RequestOptions.DEFAULT);
+  }
+
+  private void attachLegacyIndex(String entity) throws IOException {
+    if (Arrays.asList(rolloverEntities).contains(entity)) {
+      elasticsearchClient.indices().create(new CreateIndexRequest(entity + FIRST_INDEX_SUFFIX)
+          .alias(new Alias(entity + WRITE_ALIAS_SUFFIX).writeIndex(true)), RequestOptions.DEFAULT);
+      elasticsearchClient.indices().updateAliases(new IndicesAliasesRequest()
+          .addAliasAction(AliasActions.add().index(entity).alias(entity + READ_ALIAS_SUFFIX))
+          .addAliasAction(AliasActions.add().index(entity + FIRST_INDEX_SUFFIX)
+              .alias(entity + READ_ALIAS_SUFFIX)), RequestOptions.DEFAULT);
+      log.info("Bootstrapped {} as write index, {} stays readable", entity + FIRST_INDEX_SUFFIX,
+          entity);
+    } else {
+      elasticsearchClient.indices().updateAliases(new IndicesAliasesRequest()
+          .addAliasAction(AliasActions.add().index(entity).alias(entity + READ_ALIAS_SUFFIX))
+          .addAliasAction(AliasActions.add().index(entity).alias(entity + WRITE_ALIAS_SUFFIX)
+              .writeIndex(true)), RequestOptions.DEFAULT);
+      log.info("Bootstrapped read and write aliases on existing index {}", entity);
+    }
+  }
+
+  public void createIndexWithAliases(String physicalIndex, String entity) throws IOException {
+    elasticsearchClient.indices().create(new CreateIndexRequest(physicalIndex)
+        .alias(new Alias(entity + READ_ALIAS_SUFFIX))
+        .alias(new Alias(entity + WRITE_ALIAS_SUFFIX).writeIndex(true)), RequestOptions.DEFAULT);
+  }
+
+  /**
+   * Points both aliases of the entity at {@code physicalIndex} only, in one atomic update.
+   */
+  public void swapAliases(String entity, String physicalIndex) throws IOException {
+    IndicesAliasesRequest request = new IndicesAliasesRequest();
+    for (String alias : Arrays.asList(entity + READ_ALIAS_SUFFIX, entity + WRITE_ALIAS_SUFFIX)) {
+      if (elasticsearchClient.indices().existsAlias(new GetAliasesRequest(alias),
+          RequestOptions.DEFAULT)) {
+        for (String index : elasticsearchClient.indices()
+            .getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT).getAliases()
+            .keySet()) {
+          request.addAliasAction(AliasActions.remove().index(index).alias(alias));
+        }
+      }
+    }
+    request.addAliasAction(AliasActions.add().index(physicalIndex)
+        .alias(entity + READ_ALIAS_SUFFIX));
+    request.addAliasAction(AliasActions.add().index(physicalIndex)
+        .alias(entity + WRITE_ALIAS_SUFFIX).writeIndex(true));
+    elasticsearchClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+  }
+
+  /**
+   * Rolls the write alias of the entity over when a condition is met and adds the new index to
+   * the read alias.
+   *
+   * @return the new write index, or null when no rollover happened
+   */
+  public String rollover(String entity) throws IOException {
+    RolloverRequest request = new RolloverRequest(entity + WRITE_ALIAS_SUFFIX, null)
+        .addMaxIndexAgeCondition(TimeValue.parseTimeValue(rolloverMaxAge,
+            "elastic.index.rollover.max.age"))
+        .addMaxIndexDocsCondition(rolloverMaxDocs)
+        .addMaxPrimaryShardSizeCondition(ByteSizeValue.parseBytesSizeValue(
+            rolloverMaxPrimaryShardSize, "elastic.index.rollover.max.primary.shard.size"));
+    RolloverResponse response =
+        elasticsearchClient.indices().rollover(request, RequestOptions.DEFAULT);
+    if (!response.isRolledOver()) {
+      return null;
+    }
+    elasticsearchClient.indices().updateAliases(new IndicesAliasesRequest().addAliasAction(
+            AliasActions.add().index(response.getNewIndex()).alias(entity + READ_ALIAS_SUFFIX)),
+        RequestOptions.DEFAULT);
+    log.info("Rolled {} over to {}", entity, response.getNewIndex());
+    return response.getNewIndex();
+  }
+
+  /**
+   * Points writes for existing documents of rollover entities at the index that holds them, so
+   * an update does not create a second copy in the current write index. Runs one ids query per
+   * entity for the whole batch.
+   */
+  public void routeToOwningIndices(List<DocWriteRequest<?>> requests) {
+    if (rolloverEntities.length == 0) {
+      return;
+    }
+    Map<String, List<DocWriteRequest<?>>> requestsByEntity = new HashMap<>();
+    Set<String> rolling = new HashSet<>(Arrays.asList(rolloverEntities));
+    for (DocWriteRequest<?> request : requests) {
+      String entity = logicalIndexOf(request.index());
+      if (rolling.contains(entity) && request.index().equals(entity + WRITE_ALIAS_SUFFIX)) {
+        requestsByEntity.computeIfAbsent(entity, key -> new ArrayList<>()).add(request);
+      }
+    }
+    requestsByEntity.forEach((entity, entityRequests) -> {
+      Set<String> ids = new HashSet<>();
+      entityRequests.forEach(request -> ids.add(request.id()));
+      try {
+        SearchResponse response = elasticsearchClient.search(
+            new SearchRequest(entity + READ_ALIAS_SUFFIX).source(new SearchSourceBuilder()
+                .query(QueryBuilders.idsQuery().addIds(ids.toArray(new String[0])))
+                .fetchSource(false).size(ids.size())), RequestOptions.DEFAULT);
+        Map<String, String> owningIndices = new HashMap<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+          owningIndices.put(hit.getId(), hit.getIndex());
+        }
+        for (DocWriteRequest<?> request : entityRequests) {
+          String owningIndex = owningIndices.get(request.id());
+          if (owningIndex != null) {
+            request.index(owningIndex);
+          }
+        }
+      } catch (Exception e) {
+        log.error("Failed to look up owning indices of {}: {}", entity, e.getMessage());
+      }
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (rolloverExecutor != null) {
+      rolloverExecutor.shutdownNow();
+    }
+  }
+
+  private void rolloverAll() {
+    for (String entity : rolloverEntities) {
+      try {
+        rollover(entity);
+      } catch (Exception e) {
+        log.error("Rollover check of {} failed: {}", entity, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.igot.cb.pores.elasticsearch.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.igot.cb.pores.elasticsearch.routing.EsIndexRouter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Installs the composable index templates that carry the n-gram search subfields and migrates
+ * indices created before the templates existed: those listed in
+ * {@code elastic.search.ngram.migrate.indices} and any existing index the router has just put
+ * behind an entity's aliases, since n-gram searches would otherwise match nothing in it.
+ */
+@Component
+@Slf4j
+public class EsIndexTemplateManager {
+
+  private static final String CLASSPATH_PREFIX = "classpath:";
+  private static final String TEMPLATE = "template";
+  private static final String SETTINGS = "settings";
+  private static final String MAPPINGS = "mappings";
+  private static final String ANALYSIS = "analysis";
+
+  @Autowired
+  private RestHighLevelClient elasticsearchClient;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private ResourceLoader resourceLoader;
+
+  @Autowired
+  private EsIndexRouter indexRouter;
+
+  @Value("#{${elastic.index.template.mapping}}")
+  private Map<String, String> indexTemplateMapping;
+
+  @Value("${elastic.search.ngram.migrate.indices}")
+  private String[] indicesToMigrate;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    indexTemplateMapping.forEach(this::putIndexTemplate);
+    Set<String> migrations = new LinkedHashSet<>(indexRouter.bootstrap());
+    for (String index : indicesToMigrate) {
+      if (StringUtils.isNotBlank(index)) {
+        migrations.add(index.trim());
+      }
+    }
+    migrations.forEach(this::migrateIndex);
+  }
+
+  public void putIndexTemplate(String templateName, String templatePath) {
+    try {
+      performRequest("PUT", "/_index_template/" + templateName,
+          readTemplate(templatePath).toString());
+      log.info("Index template {} installed from {}", templateName, templatePath);
+    } catch (Exception e) {
+      log.error("Failed to install index template {}: {}", templateName, e.getMessage());
+    }
+  }
+
+  /**
+   * Adds the template analysis settings and search subfields to an existing index and starts an
+   * asynchronous update-by-query that re-analyses the stored documents in place. The index is
+   * closed briefly while its analysis settings are updated.
+   *
+   * @return the id of the update-by-query task, or null when the migration failed
+   */
+  public String migrateIndex(String esIndexName) {
+    log.info("EsIndexTemplateManager::migrateIndex: migrating {}", esIndexName);
+    try {
+      JsonNode template = findTemplateFor(esIndexName);
+      if (template == null) {
+        log.error("No index template matches index {}", esIndexName);
+        return null;
+      }
+      JsonNode analysis = template.path(TEMPLATE).path(SETTINGS).path(ANALYSIS);
+      if (!analysis.isMissingNode() && !hasAnalysis(esIndexName, analysis)) {
+        performRequest("POST", "/" + esIndexName + "/_close", null);
+        try {
+          performRequest("PUT", "/" + esIndexName + "/_settings",
+              objectMapper.createObjectNode().set(ANALYSIS, analysis).toString());
+        } finally {
+          performRequest("POST", "/" + esIndexName + "/_open", null);
+        }
+      }
+      performRequest("PUT", "/" + esIndexName + "/_mapping",
+          template.path(TEMPLATE).path(MAPPINGS).toString());
+      JsonNode taskResponse = performRequest("POST", "/" + esIndexName
+          + "/_update_by_query?conflicts=proceed&wait_for_completion=false", null);
+      String taskId = taskResponse.path("task").asText(null);
+      log.info("Started update by query task {} for index {}", taskId, esIndexName);
+      return taskId;
+    } catch (Exception e) {
+      log.error("Failed to migrate index {}: {}", esIndexName, e.getMessage());
+      return null;
+    }
+  }
+
+  private boolean hasAnalysis(String esIndexName, JsonNode analysis) throws IOException {
+    JsonNode settings = performRequest("GET", "/" + esIndexName + "/_settings", null);
+    JsonNode indexAnalysis = settings.path(esIndexName).path(SETTINGS).path("index")
+        .path(ANALYSIS).path("analyzer");
+    Iterable<String> analyzers = () -> analysis.path("analyzer").fieldNames();
+    for (String analyzer : analyzers) {
+      if (indexAnalysis.path(analyzer).isMissingNode()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private JsonNode findTemplateFor(String esIndexName) throws IOException {
+    for (String templatePath : indexTemplateMapping.values()) {
+      JsonNode template = readTemplate(templatePath);
+      for (JsonNode pattern : template.path("index_patterns")) {
+        String regex = pattern.asText().replace(".", "\\.").replace("*", ".*");
+        if (esIndexName.matches(regex)) {
+          return template;
+        }
+      }
+    }
+    return null;
+  }
+
+  private JsonNode readTemplate(String templatePath) throws IOException {
+    String location = ResourcePatternUtils.isUrl(templatePath) ? templatePath
+        : CLASSPATH_PREFIX + templatePath;
+    try (InputStream inputStream = resourceLoader.getResource(location).getInputStream()) {
+      return objectMapper.readTree(inputStream);
+    }
+  }
+
+  private JsonNode performRequest(String method, String endpoint, String jsonBody)
+      throws IOException {
+    Request request = new Request(method, endpoint);
+    if (jsonBody != null) {
+      request.setJsonEntity(jsonBody);
+    }
+    Response response = elasticsearchClient.getLowLevelClient().performRequest(request);
+    return objectMapper.readTree(EntityUtils.toString(response.getEntity()));
+  }
+}
@@ -1,8 +1,11 @@
 package com.igot.cb.pores.elasticsearch.service;
 
+import com.igot.cb.pores.elasticsearch.dto.BatchSearchResult;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
 import com.igot.cb.pores.elasticsearch.dto.SearchResult;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 
@@ -13,8 +16,30 @@ public interface EsUtilService {
 
   void deleteDocument(String documentId, String esIndexName);
 
-  void deleteDocumentsByCriteria(String esIndexName, SearchSourceBuilder sourceBuilder);
+  String deleteDocumentsByCriteria(String esIndexName, SearchSourceBuilder sourceBuilder);
+
+  String deleteDocumentsByCriteria(String esIndexName, SearchSourceBuilder sourceBuilder,
+      float requestsPerSecond);
+
+  Map<String, Object> getTaskStatus(String taskId);
+
+  void cancelTask(String taskId);
+
+  void rethrottleDeleteTask(String taskId, float requestsPerSecond);
 
   SearchResult searchDocuments(String esIndexName, SearchCriteria searchCriteria) throws Exception;
 
+  CompletableFuture<SearchResult> searchDocumentsAsync(String esIndexName,
+      SearchCriteria searchCriteria);
+
+  /**
+   * Same as {@link #searchDocumentsAsync(String, SearchCriteria)} for a caller that has already
+   * read the index write version, which the facet cache then reuses.
+   */
+  CompletableFuture<SearchResult> searchDocumentsAsync(String esIndexName,
+      SearchCriteria searchCriteria, long indexVersion);
+
+  CompletableFuture<List<BatchSearchResult>> searchDocumentsBatchAsync(String esIndexName,
+      List<SearchCriteria> searchCriteriaList);
+
 }
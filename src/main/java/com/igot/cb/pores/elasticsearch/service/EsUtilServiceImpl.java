@@ -1,54 +1,92 @@
 package com.igot.cb.pores.elasticsearch.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.igot.cb.pores.cache.IndexVersionService;
+import com.igot.cb.pores.cache.SingleFlight;
+import com.igot.cb.pores.elasticsearch.cache.FacetCache;
+import com.igot.cb.pores.elasticsearch.cache.SearchCriteriaKeys;
 import com.igot.cb.pores.elasticsearch.config.EsConfig;
+import com.igot.cb.pores.elasticsearch.dto.BatchSearchResult;
 import com.igot.cb.pores.elasticsearch.dto.FacetDTO;
 import com.igot.cb.pores.elasticsearch.dto.SearchCriteria;
+import com.igot.cb.pores.elasticsearch.dto.SearchCursor;
 import com.igot.cb.pores.elasticsearch.dto.SearchResult;
+import com.igot.cb.pores.elasticsearch.indexing.EsIndexingPipeline;
+import com.igot.cb.pores.elasticsearch.projection.EsFieldProjectionRegistry;
+import com.igot.cb.pores.elasticsearch.query.SearchQueryPlanner;
+import com.igot.cb.pores.elasticsearch.routing.EsIndexRouter;
+import com.igot.cb.pores.exceptions.CustomException;
 import com.igot.cb.pores.util.Constants;
-import com.networknt.schema.JsonSchemaFactory;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.elasticsearch.action.DocWriteResponse;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.util.EntityUtils;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.delete.DeleteRequest;
-import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
-import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.xcontent.XContentType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 @Service
 @Slf4j
 public class EsUtilServiceImpl implements EsUtilService {
 
+  private static final String SHARD_DOC_SORT = "_shard_doc";
+  private static final int DEFAULT_PAGE_SIZE = 10;
+  private static final String REQUESTS_PER_SECOND = "requests_per_second";
+  private static final String RESPONSE = "response";
+  private static final String EXACT_COUNT = "eq";
+  private static final String LOWER_BOUND_COUNT = "gte";
+
   /*@Autowired
   private RestHighLevelClient elasticsearchClient;*/
   private final EsConfig esConfig;
@@ -63,30 +101,88 @@ public class EsUtilServiceImpl implements EsUtilService {
     this.esConfig = esConnection;
   }
 
-  @Value("${elastic.required.field.json.path}")
-  private String requiredJsonFilePath;
+  @Autowired
+  private EsFieldProjectionRegistry projectionRegistry;
+
+  @Autowired
+  private EsIndexingPipeline indexingPipeline;
+
+  @Autowired
+  private FacetCache facetCache;
+
+  @Autowired
+  private SearchQueryPlanner queryPlanner;
+
+  @Autowired
+  private EsIndexRouter indexRouter;
+
+  @Autowired
+  private SingleFlight singleFlight;
+
+  @Autowired
+  private IndexVersionService indexVersionService;
+
+  @Value("${elastic.search.pit.keep.alive}")
+  private String pitKeepAlive;
+
+  @Value("${elastic.search.timeout.ms}")
+  private long searchTimeoutMs;
+
+  @Value("${elastic.search.wildcard.enabled}")
+  private boolean wildcardSearchEnabled;
+
+  @Value("${elastic.delete.by.query.requests.per.second}")
+  private float deleteRequestsPerSecond;
+
+  @Value("${elastic.delete.by.query.poll.interval.ms}")
+  private long deleteTaskPollIntervalMs;
+
+  @Value("${elastic.search.raw.source.passthrough}")
+  private boolean rawSourcePassthrough;
+
+  @Value("${elastic.search.batch.max.size}")
+  private int batchSearchMaxSize;
+
+  @Value("${elastic.search.result.threads}")
+  private int resultThreads;
+
+  @Value("${elastic.search.result.queue.size}")
+  private int resultQueueSize;
+
+  private ThreadPoolExecutor resultExecutor;
+  private ScheduledExecutorService taskWatcher;
+
+  @PostConstruct
+  public void init() {
+    resultExecutor = new ThreadPoolExecutor(resultThreads, resultThreads, 0L,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(resultQueueSize), runnable -> {
+      Thread thread = new Thread(runnable, "es-search-result");
+      thread.setDaemon(true);
+      return thread;
+    }, new ThreadPoolExecutor.AbortPolicy());
+    taskWatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "es-task-watcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    resultExecutor.shutdown();
+    taskWatcher.shutdownNow();
+  }
 
   @Override
   public RestStatus addDocument(
       String esIndexName, String type, String id, Map<String, Object> document) {
     try {
-      JsonSchemaFactory schemaFactory = JsonSchemaFactory.getInstance();
-      InputStream schemaStream = schemaFactory.getClass().getResourceAsStream(requiredJsonFilePath);
-      Map<String, Object> map = objectMapper.readValue(schemaStream,
-          new TypeReference<Map<String, Object>>() {
-          });
-      Iterator<Entry<String, Object>> iterator = document.entrySet().iterator();
-      while (iterator.hasNext()) {
-        Map.Entry<String, Object> entry = iterator.next();
-        String key = entry.getKey();
-        if (!map.containsKey(key)) {
-          iterator.remove();
-        }
-      }
+      Map<String, Object> projectedDocument = projectionRegistry.project(esIndexName, document);
       IndexRequest indexRequest =
-          new IndexRequest(esIndexName, type, id).source(document, XContentType.JSON);
-      IndexResponse response = elasticsearchClient.index(indexRequest, RequestOptions.DEFAULT);
-      return response.status();
+          new IndexRequest(indexRouter.writeAlias(esIndexName), type, id)
+              .source(projectedDocument, XContentType.JSON);
+      indexingPipeline.submit(indexRequest);
+      return RestStatus.ACCEPTED;
     } catch (Exception e) {
       log.error("Issue while Indexing to es: {}", e.getMessage());
       return null;
@@ -97,27 +193,15 @@ public class EsUtilServiceImpl implements EsUtilService {
   public RestStatus updateDocument(
       String index, String indexType, String entityId, Map<String, Object> updatedDocument) {
     try {
-      JsonSchemaFactory schemaFactory = JsonSchemaFactory.getInstance();
-      InputStream schemaStream = schemaFactory.getClass().getResourceAsStream(requiredJsonFilePath);
-      Map<String, Object> map = objectMapper.readValue(schemaStream,
-          new TypeReference<Map<String, Object>>() {
-          });
-      Iterator<Map.Entry<String, Object>> iterator = updatedDocument.entrySet().iterator();
-      while (iterator.hasNext()) {
-        Map.Entry<String, Object> entry = iterator.next();
-        String key = entry.getKey();
-        if (!map.containsKey(key)) {
-          iterator.remove();
-        }
-      }
+      Map<String, Object> projectedDocument = projectionRegistry.project(index, updatedDocument);
       IndexRequest indexRequest =
-          new IndexRequest(index)
+          new IndexRequest(indexRouter.writeAlias(index))
               .id(entityId)
-              .source(updatedDocument)
-              .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
-      IndexResponse response = elasticsearchClient.index(indexRequest, RequestOptions.DEFAULT);
-      return response.status();
-    } catch (IOException e) {
+              .source(projectedDocument);
+      indexingPipeline.submit(indexRequest);
+      return RestStatus.ACCEPTED;
+    } catch (Exception e) {
+      log.error("Issue while updating document in es: {}", e.getMessage());
       return null;
     }
   }
@@ -125,13 +209,9 @@ public class EsUtilServiceImpl implements EsUtilService {
   @Override
   public void deleteDocument(String documentId, String esIndexName) {
     try {
-      DeleteRequest request = new DeleteRequest(esIndexName, Constants.INDEX_TYPE, documentId);
-      DeleteResponse response = elasticsearchClient.delete(request, RequestOptions.DEFAULT);
-      if (response.getResult() == DocWriteResponse.Result.DELETED) {
-        log.info("Document deleted successfully from elasticsearch.");
-      } else {
-        log.error("Document not found or failed to delete from elasticsearch.");
-      }
+      DeleteRequest request = new DeleteRequest(indexRouter.writeAlias(esIndexName),
+          Constants.INDEX_TYPE, documentId);
+      indexingPipeline.submit(request);
     } catch (Exception e) {
       log.error("Error occurred during deleting document in elasticsearch");
     }
@@ -139,39 +219,494 @@ public class EsUtilServiceImpl implements EsUtilService {
 
   @Override
   public SearchResult searchDocuments(String esIndexName, SearchCriteria searchCriteria) {
-    SearchSourceBuilder searchSourceBuilder = buildSearchSourceBuilder(searchCriteria);
-    SearchRequest searchRequest = new SearchRequest(esIndexName);
+    if (!isCoalescable(searchCriteria)) {
+      return executeSearch(esIndexName, searchCriteria);
+    }
+    return singleFlight.execute(searchFlightKey(esIndexName, searchCriteria),
+        () -> executeSearch(esIndexName, searchCriteria));
+  }
+
+  private SearchResult executeSearch(String esIndexName, SearchCriteria searchCriteria) {
+    FacetCache.Lookup facetLookup = facetCache.lookup(esIndexName, searchCriteria);
+    if (isFacetsOnly(searchCriteria) && facetLookup.isComplete()) {
+      return buildCachedFacetResult(facetLookup);
+    }
+    SearchSourceBuilder searchSourceBuilder =
+        buildSearchSourceBuilder(esIndexName, searchCriteria, facetLookup.getMissing());
+    if (searchSourceBuilder != null && isCursorMode(searchCriteria)) {
+      return searchWithCursor(esIndexName, searchCriteria, searchSourceBuilder, facetLookup);
+    }
+    SearchRequest searchRequest = new SearchRequest(indexRouter.readAlias(esIndexName));
     searchRequest.source(searchSourceBuilder);
     try {
       if (searchSourceBuilder != null) {
-        int pageNumber = searchCriteria.getPageNumber();
-        int pageSize = searchCriteria.getPageSize();
-        searchSourceBuilder.from(pageNumber);
-        if (pageSize != 0) {
-          searchSourceBuilder.size(pageSize);
-        }
+        applyPaging(searchCriteria, searchSourceBuilder);
       }
       SearchResponse paginatedSearchResponse =
           elasticsearchClient.search(searchRequest, RequestOptions.DEFAULT);
-      List<Map<String, Object>> paginatedResult = extractPaginatedResult(paginatedSearchResponse);
-      Map<String, List<FacetDTO>> fieldAggregations =
-          extractFacetData(paginatedSearchResponse, searchCriteria);
-      SearchResult searchResult = new SearchResult();
-      searchResult.setData(objectMapper.valueToTree(paginatedResult));
-      searchResult.setFacets(fieldAggregations);
-      searchResult.setTotalCount(paginatedSearchResponse.getHits().getTotalHits().value);
-      return searchResult;
+      return buildSearchResult(paginatedSearchResponse, searchCriteria, facetLookup);
+    } catch (ElasticsearchException e) {
+      log.error("Elastic search rejected search: {}", e.getMessage());
+      throw toSearchException(e);
     } catch (IOException e) {
       log.error("Error while fetching details from elastic search");
       return null;
     }
   }
 
+  @Override
+  public CompletableFuture<SearchResult> searchDocumentsAsync(String esIndexName,
+      SearchCriteria searchCriteria) {
+    return searchDocumentsAsync(esIndexName, searchCriteria,
+        () -> facetCache.lookup(esIndexName, searchCriteria));
+  }
+
+  @Override
+  public CompletableFuture<SearchResult> searchDocumentsAsync(String esIndexName,
+      SearchCriteria searchCriteria, long indexVersion) {
+    return searchDocumentsAsync(esIndexName, searchCriteria,
+        () -> facetCache.lookup(esIndexName, searchCriteria, indexVersion));
+  }
+
+  private CompletableFuture<SearchResult> searchDocumentsAsync(String esIndexName,
+      SearchCriteria searchCriteria, Supplier<FacetCache.Lookup> facetLookup) {
+    if (!isCoalescable(searchCriteria)) {
+      return executeSearchAsync(esIndexName, searchCriteria, facetLookup);
+    }
+    return singleFlight.executeAsync(searchFlightKey(esIndexName, searchCriteria),
+        () -> executeSearchAsync(esIndexName, searchCriteria, facetLookup));
+  }
+
+  /**
+   * Response parsing runs on {@link #resultExecutor}, never on the I/O reactor thread that
+   * completes the Elasticsearch call.
+   */
+  private CompletableFuture<SearchResult> executeSearchAsync(String esIndexName,
+      SearchCriteria searchCriteria, Supplier<FacetCache.Lookup> facetLookupSupplier) {
+    CompletableFuture<SearchResult> result = new CompletableFuture<>();
+    AtomicReference<Cancellable> inFlight = new AtomicReference<>();
+    result.whenComplete((searchResult, e) -> {
+      Cancellable cancellable = inFlight.get();
+      if (result.isCancelled() && cancellable != null) {
+        cancellable.cancel();
+      }
+    });
+    try {
+      FacetCache.Lookup facetLookup = facetLookupSupplier.get();
+      if (isFacetsOnly(searchCriteria) && facetLookup.isComplete()) {
+        result.complete(buildCachedFacetResult(facetLookup));
+        return result;
+      }
+      SearchSourceBuilder searchSourceBuilder =
+          buildSearchSourceBuilder(esIndexName, searchCriteria, facetLookup.getMissing());
+      if (searchSourceBuilder == null) {
+        throw new CustomException(Constants.ERROR, "Search criteria body is missing",
+            HttpStatus.BAD_REQUEST);
+      }
+      searchSourceBuilder.timeout(TimeValue.timeValueMillis(searchTimeoutMs));
+      if (!isCursorMode(searchCriteria)) {
+        applyPaging(searchCriteria, searchSourceBuilder);
+        track(result, inFlight, elasticsearchClient.searchAsync(
+            new SearchRequest(indexRouter.readAlias(esIndexName)).source(searchSourceBuilder),
+            searchRequestOptions(),
+            ActionListener.wrap(
+                response -> completeOffReactor(result,
+                    () -> buildSearchResult(response, searchCriteria, facetLookup)),
+                e -> result.completeExceptionally(toSearchException(e)))));
+        return result;
+      }
+      String criteriaHash = cursorHash(searchCriteria, searchSourceBuilder);
+      SearchCursor cursor = decodeCursor(searchCriteria.getCursor(), criteriaHash);
+      if (cursor != null) {
+        searchCursorPageAsync(searchCriteria, searchSourceBuilder, facetLookup,
+            cursor.getPointInTimeId(), cursor, criteriaHash, result, inFlight);
+      } else {
+        OpenPointInTimeRequest request =
+            new OpenPointInTimeRequest(indexRouter.readAlias(esIndexName))
+            .keepAlive(getPitKeepAlive());
+        track(result, inFlight, elasticsearchClient.openPointInTimeAsync(request,
+            searchRequestOptions(), ActionListener.wrap(
+                pitResponse -> searchCursorPageAsync(searchCriteria, searchSourceBuilder,
+                    facetLookup, pitResponse.getPointInTimeId(), null, criteriaHash, result,
+                    inFlight),
+                e -> result.completeExceptionally(toSearchException(e)))));
+      }
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Runs all criteria as one multi search. Results keep the order of the criteria; a criteria
+   * that fails, or asks for cursor paging, gets an error entry without failing the others.
+   * Facet-only criteria whose facets are all cached are answered without Elasticsearch.
+   */
+  @Override
+  public CompletableFuture<List<BatchSearchResult>> searchDocumentsBatchAsync(String esIndexName,
+      List<SearchCriteria> searchCriteriaList) {
+    CompletableFuture<List<BatchSearchResult>> result = new CompletableFuture<>();
+    if (searchCriteriaList == null || searchCriteriaList.isEmpty()
+        || searchCriteriaList.size() > batchSearchMaxSize) {
+      result.completeExceptionally(new CustomException(Constants.ERROR,
+          "Batch search needs between 1 and " + batchSearchMaxSize + " search criteria",
+          HttpStatus.BAD_REQUEST));
+      return result;
+    }
+    AtomicReference<Cancellable> inFlight = new AtomicReference<>();
+    result.whenComplete((searchResults, e) -> {
+      Cancellable cancellable = inFlight.get();
+      if (result.isCancelled() && cancellable != null) {
+        cancellable.cancel();
+      }
+    });
+    BatchSearchResult[] searchResults = new BatchSearchResult[searchCriteriaList.size()];
+    MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+    List<Integer> positions = new ArrayList<>();
+    List<FacetCache.Lookup> facetLookups = new ArrayList<>();
+    try {
+      for (int i = 0; i < searchCriteriaList.size(); i++) {
+        SearchCriteria searchCriteria = searchCriteriaList.get(i);
+        if (searchCriteria == null) {
+          searchResults[i] = BatchSearchResult.failure(HttpStatus.BAD_REQUEST.value(),
+              "Search criteria body is missing");
+          continue;
+        }
+        if (isCursorMode(searchCriteria)) {
+          searchResults[i] = BatchSearchResult.failure(HttpStatus.BAD_REQUEST.value(),
+              "Cursor paging is not supported in batch search");
+          continue;
+        }
+        FacetCache.Lookup facetLookup = facetCache.lookup(esIndexName, searchCriteria);
+        if (searchCriteria.isFacetsOnly() && facetLookup.isComplete()) {
+          searchResults[i] = BatchSearchResult.success(buildCachedFacetResult(facetLookup));
+          continue;
+        }
+        SearchSourceBuilder searchSourceBuilder =
+            buildSearchSourceBuilder(esIndexName, searchCriteria, facetLookup.getMissing());
+        searchSourceBuilder.timeout(TimeValue.timeValueMillis(searchTimeoutMs));
+        applyPaging(searchCriteria, searchSourceBuilder);
+        multiSearchRequest.add(new SearchRequest(indexRouter.readAlias(esIndexName))
+            .source(searchSourceBuilder));
+        positions.add(i);
+        facetLookups.add(facetLookup);
+      }
+      if (positions.isEmpty()) {
+        result.complete(Arrays.asList(searchResults));
+        return result;
+      }
+      track(result, inFlight, elasticsearchClient.msearchAsync(multiSearchRequest,
+          searchRequestOptions(), ActionListener.wrap(response -> completeOffReactor(result, () -> {
+            MultiSearchResponse.Item[] items = response.getResponses();
+            for (int i = 0; i < items.length; i++) {
+              searchResults[positions.get(i)] = toBatchSearchResult(items[i],
+                  searchCriteriaList.get(positions.get(i)), facetLookups.get(i));
+            }
+            return Arrays.asList(searchResults);
+          }), e -> result.completeExceptionally(toSearchException(e)))));
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private BatchSearchResult toBatchSearchResult(MultiSearchResponse.Item item,
+      SearchCriteria searchCriteria, FacetCache.Lookup facetLookup) {
+    if (item.isFailure()) {
+      log.error("Batch search item failed: {}", item.getFailureMessage());
+      return BatchSearchResult.failure(ExceptionsHelper.status(item.getFailure()).getStatus(),
+          item.getFailureMessage());
+    }
+    return BatchSearchResult.success(
+        buildSearchResult(item.getResponse(), searchCriteria, facetLookup));
+  }
+
+  private void searchCursorPageAsync(SearchCriteria searchCriteria,
+      SearchSourceBuilder searchSourceBuilder, FacetCache.Lookup facetLookup,
+      String pointInTimeId, SearchCursor cursor, String criteriaHash,
+      CompletableFuture<SearchResult> result, AtomicReference<Cancellable> inFlight) {
+    int pageSize = getCursorPageSize(searchCriteria);
+    SearchRequest request =
+        buildCursorRequest(searchSourceBuilder, pointInTimeId, cursor, pageSize);
+    track(result, inFlight, elasticsearchClient.searchAsync(request, searchRequestOptions(),
+        ActionListener.wrap(response -> completeOffReactor(result, () -> {
+          SearchResult searchResult = buildCursorResult(response, searchCriteria, facetLookup,
+              pointInTimeId, pageSize, criteriaHash);
+          if (searchResult.getNextCursor() == null) {
+            closePointInTimeAsync(currentPointInTimeId(response, pointInTimeId));
+          }
+          return searchResult;
+        }), e -> {
+          if (cursor == null) {
+            closePointInTimeAsync(pointInTimeId);
+          }
+          result.completeExceptionally(toSearchException(e));
+        })));
+  }
+
+  /**
+   * Completes the result with the builder's value on {@link #resultExecutor}. When its queue is
+   * full the search fails with 503 rather than parsing on the calling I/O thread.
+   */
+  private <T> void completeOffReactor(CompletableFuture<T> result, ResultBuilder<T> builder) {
+    try {
+      resultExecutor.execute(() -> {
+        try {
+          result.complete(builder.build());
+        } catch (Exception e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(new CustomException(Constants.ERROR,
+          "Too many searches in progress", HttpStatus.SERVICE_UNAVAILABLE));
+    }
+  }
+
+  @FunctionalInterface
+  private interface ResultBuilder<T> {
+
+    T build() throws Exception;
+  }
+
+  private void track(CompletableFuture<?> result, AtomicReference<Cancellable> inFlight,
+      Cancellable cancellable) {
+    inFlight.set(cancellable);
+    if (result.isCancelled()) {
+      cancellable.cancel();
+    }
+  }
+
+  private RequestOptions searchRequestOptions() {
+    return RequestOptions.DEFAULT.toBuilder()
+        .setRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(RestClientBuilder.DEFAULT_CONNECT_TIMEOUT_MILLIS)
+            .setSocketTimeout((int) searchTimeoutMs)
+            .build())
+        .build();
+  }
+
+  private void applyPaging(SearchCriteria searchCriteria,
+      SearchSourceBuilder searchSourceBuilder) {
+    if (searchCriteria.isFacetsOnly() || searchCriteria.isCountOnly()) {
+      searchSourceBuilder.size(0);
+      return;
+    }
+    int pageNumber = searchCriteria.getPageNumber();
+    int pageSize = searchCriteria.getPageSize();
+    searchSourceBuilder.from(pageNumber);
+    if (pageSize != 0) {
+      searchSourceBuilder.size(pageSize);
+    }
+  }
+
+  private SearchResult searchWithCursor(String esIndexName, SearchCriteria searchCriteria,
+      SearchSourceBuilder searchSourceBuilder, FacetCache.Lookup facetLookup) {
+    String criteriaHash = cursorHash(searchCriteria, searchSourceBuilder);
+    SearchCursor cursor = decodeCursor(searchCriteria.getCursor(), criteriaHash);
+    int pageSize = getCursorPageSize(searchCriteria);
+    String pointInTimeId = null;
+    try {
+      pointInTimeId = cursor != null ? cursor.getPointInTimeId() : openPointInTime(esIndexName);
+      SearchResponse searchResponse = elasticsearchClient.search(
+          buildCursorRequest(searchSourceBuilder, pointInTimeId, cursor, pageSize),
+          RequestOptions.DEFAULT);
+      SearchResult searchResult = buildCursorResult(searchResponse, searchCriteria, facetLookup,
+          pointInTimeId, pageSize, criteriaHash);
+      if (searchResult.getNextCursor() == null) {
+        closePointInTime(currentPointInTimeId(searchResponse, pointInTimeId));
+      }
+      return searchResult;
+    } catch (ElasticsearchException e) {
+      log.error("Elastic search rejected cursor page: {}", e.getMessage());
+      if (cursor == null) {
+        closePointInTime(pointInTimeId);
+      }
+      throw toSearchException(e);
+    } catch (IOException e) {
+      log.error("Error while fetching cursor page from elastic search: {}", e.getMessage());
+      if (cursor == null) {
+        closePointInTime(pointInTimeId);
+      }
+      return null;
+    }
+  }
+
+  private SearchRequest buildCursorRequest(SearchSourceBuilder searchSourceBuilder,
+      String pointInTimeId, SearchCursor cursor, int pageSize) {
+    searchSourceBuilder.pointInTimeBuilder(
+        new PointInTimeBuilder(pointInTimeId).setKeepAlive(getPitKeepAlive()));
+    searchSourceBuilder.sort(SortBuilders.fieldSort(SHARD_DOC_SORT).order(SortOrder.ASC));
+    searchSourceBuilder.size(pageSize);
+    if (cursor != null) {
+      searchSourceBuilder.searchAfter(cursor.getSearchAfter());
+    }
+    return new SearchRequest().source(searchSourceBuilder);
+  }
+
+  /**
+   * Builds the page result and, unless this was the last page, its continuation token.
+   */
+  private SearchResult buildCursorResult(SearchResponse searchResponse,
+      SearchCriteria searchCriteria, FacetCache.Lookup facetLookup, String pointInTimeId,
+      int pageSize, String criteriaHash) throws IOException {
+    SearchResult searchResult = buildSearchResult(searchResponse, searchCriteria, facetLookup);
+    SearchHit[] hits = searchResponse.getHits().getHits();
+    if (hits.length >= pageSize) {
+      searchResult.setNextCursor(encodeCursor(
+          new SearchCursor(currentPointInTimeId(searchResponse, pointInTimeId),
+              hits[hits.length - 1].getSortValues(), criteriaHash)));
+    }
+    return searchResult;
+  }
+
+  private String currentPointInTimeId(SearchResponse searchResponse, String pointInTimeId) {
+    return searchResponse.pointInTimeId() != null ? searchResponse.pointInTimeId()
+        : pointInTimeId;
+  }
+
+  private int getCursorPageSize(SearchCriteria searchCriteria) {
+    return searchCriteria.getPageSize() != 0 ? searchCriteria.getPageSize() : DEFAULT_PAGE_SIZE;
+  }
+
+  private boolean isCursorMode(SearchCriteria searchCriteria) {
+    return !searchCriteria.isFacetsOnly() && !searchCriteria.isCountOnly()
+        && (searchCriteria.isUseCursor() || isNotBlank(searchCriteria.getCursor()));
+  }
+
+  /**
+   * Identical concurrent searches share one Elasticsearch request. Cursor pages are not shared
+   * since every caller must get its own point in time.
+   */
+  private boolean isCoalescable(SearchCriteria searchCriteria) {
+    return searchCriteria != null && !isCursorMode(searchCriteria);
+  }
+
+  private String searchFlightKey(String esIndexName, SearchCriteria searchCriteria) {
+    return "search_" + esIndexName + "|" + SearchCriteriaKeys.resultKey(searchCriteria,
+        wildcardSearchEnabled);
+  }
+
+  private boolean isFacetsOnly(SearchCriteria searchCriteria) {
+    return searchCriteria != null && searchCriteria.isFacetsOnly();
+  }
+
+  private String openPointInTime(String esIndexName) throws IOException {
+    OpenPointInTimeRequest request =
+        new OpenPointInTimeRequest(indexRouter.readAlias(esIndexName))
+            .keepAlive(getPitKeepAlive());
+    return elasticsearchClient.openPointInTime(request, RequestOptions.DEFAULT)
+        .getPointInTimeId();
+  }
+
+  private void closePointInTime(String pointInTimeId) {
+    if (pointInTimeId == null) {
+      return;
+    }
+    try {
+      elasticsearchClient.closePointInTime(new ClosePointInTimeRequest(pointInTimeId),
+          RequestOptions.DEFAULT);
+    } catch (Exception e) {
+      log.warn("Failed to close point in time: {}", e.getMessage());
+    }
+  }
+
+  private void closePointInTimeAsync(String pointInTimeId) {
+    if (pointInTimeId == null) {
+      return;
+    }
+    elasticsearchClient.closePointInTimeAsync(new ClosePointInTimeRequest(pointInTimeId),
+        RequestOptions.DEFAULT, ActionListener.wrap(response -> {
+        }, e -> log.warn("Failed to close point in time: {}", e.getMessage())));
+  }
+
+  private TimeValue getPitKeepAlive() {
+    return TimeValue.parseTimeValue(pitKeepAlive, "elastic.search.pit.keep.alive");
+  }
+
+  private String encodeCursor(SearchCursor cursor) throws IOException {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(objectMapper.writeValueAsBytes(cursor));
+  }
+
+  /**
+   * Decodes the continuation token, rejecting tokens issued for other criteria or sort.
+   */
+  private SearchCursor decodeCursor(String token, String criteriaHash) {
+    if (!isNotBlank(token)) {
+      return null;
+    }
+    SearchCursor cursor;
+    try {
+      cursor = objectMapper.readValue(Base64.getUrlDecoder().decode(token), SearchCursor.class);
+    } catch (Exception e) {
+      throw new CustomException(Constants.ERROR, "Invalid search cursor", HttpStatus.BAD_REQUEST);
+    }
+    if (!criteriaHash.equals(cursor.getCriteriaHash())) {
+      throw new CustomException(Constants.ERROR,
+          "Search cursor was issued for different search criteria", HttpStatus.BAD_REQUEST);
+    }
+    return cursor;
+  }
+
+  private String cursorHash(SearchCriteria searchCriteria,
+      SearchSourceBuilder searchSourceBuilder) {
+    return SearchCriteriaKeys.cursorHash(searchCriteria,
+        String.valueOf(searchSourceBuilder.sorts()), wildcardSearchEnabled);
+  }
+
+  /**
+   * Errors returned by Elasticsearch keep their status, so that a request it rejects is
+   * answered with a client error instead of a 500. Other checked exceptions become a 500.
+   */
+  private RuntimeException toSearchException(Exception e) {
+    if (e instanceof ElasticsearchException) {
+      return new CustomException(Constants.ERROR, e.getMessage(),
+          HttpStatus.valueOf(((ElasticsearchException) e).status().getStatus()));
+    }
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    }
+    return new CustomException(Constants.ERROR, e.getMessage(),
+        HttpStatus.INTERNAL_SERVER_ERROR);
+  }
+
+  private SearchResult buildSearchResult(SearchResponse searchResponse,
+      SearchCriteria searchCriteria, FacetCache.Lookup facetLookup) {
+    TotalHits totalHits = searchResponse.getHits().getTotalHits();
+    long totalCount = totalHits != null ? totalHits.value : 0L;
+    String totalCountRelation = totalHits != null
+        && totalHits.relation == TotalHits.Relation.EQUAL_TO ? EXACT_COUNT : LOWER_BOUND_COUNT;
+    Map<String, List<FacetDTO>> fieldAggregations =
+        extractFacetData(searchResponse, facetLookup.getMissing());
+    facetCache.store(facetLookup, fieldAggregations, totalCount, totalCountRelation);
+    fieldAggregations.putAll(facetLookup.getCached());
+    SearchResult searchResult = new SearchResult();
+    searchResult.setData(searchCriteria.isIdsOnly() ? extractIds(searchResponse)
+        : extractHits(searchResponse));
+    searchResult.setFacets(fieldAggregations);
+    searchResult.setTotalCount(totalCount);
+    searchResult.setTotalCountRelation(totalCountRelation);
+    return searchResult;
+  }
+
+  /**
+   * Result of a facet-only request whose facets were all current in the facet cache.
+   */
+  private SearchResult buildCachedFacetResult(FacetCache.Lookup facetLookup) {
+    SearchResult searchResult = new SearchResult();
+    searchResult.setData(objectMapper.createArrayNode());
+    searchResult.setFacets(new HashMap<>(facetLookup.getCached()));
+    searchResult.setTotalCount(facetLookup.getTotalCount());
+    searchResult.setTotalCountRelation(facetLookup.getTotalCountRelation());
+    return searchResult;
+  }
+
   private Map<String, List<FacetDTO>> extractFacetData(
-      SearchResponse searchResponse, SearchCriteria searchCriteria) {
+      SearchResponse searchResponse, List<String> facets) {
     Map<String, List<FacetDTO>> fieldAggregations = new HashMap<>();
-    if (searchCriteria.getFacets() != null) {
-      for (String field : searchCriteria.getFacets()) {
+    if (facets != null) {
+      for (String field : facets) {
         Terms fieldAggregation = searchResponse.getAggregations().get(field + "_agg");
         List<FacetDTO> fieldValueList = new ArrayList<>();
         for (Terms.Bucket bucket : fieldAggregation.getBuckets()) {
@@ -186,6 +721,36 @@ public class EsUtilServiceImpl implements EsUtilService {
     return fieldAggregations;
   }
 
+  /**
+   * With raw source passthrough each hit's {@code _source} is kept as a raw JSON value whose
+   * bytes are copied as is into the response ({@link RawSourceValue}), instead of being parsed
+   * into a map and converted to a tree.
+   */
+  private JsonNode extractHits(SearchResponse searchResponse) {
+    if (!rawSourcePassthrough) {
+      return objectMapper.valueToTree(extractPaginatedResult(searchResponse));
+    }
+    SearchHit[] hits = searchResponse.getHits().getHits();
+    ArrayNode data = objectMapper.createArrayNode();
+    for (SearchHit hit : hits) {
+      BytesReference source = hit.getSourceRef();
+      if (source == null) {
+        data.addNull();
+      } else {
+        data.add(objectMapper.getNodeFactory().rawValueNode(new RawValue(new RawSourceValue(source))));
+      }
+    }
+    return data;
+  }
+
+  private JsonNode extractIds(SearchResponse searchResponse) {
+    ArrayNode ids = objectMapper.createArrayNode();
+    for (SearchHit hit : searchResponse.getHits().getHits()) {
+      ids.add(hit.getId());
+    }
+    return ids;
+  }
+
   private List<Map<String, Object>> extractPaginatedResult(SearchResponse paginatedSearchResponse) {
     SearchHit[] hits = paginatedSearchResponse.getHits().getHits();
     List<Map<String, Object>> paginatedResult = new ArrayList<>();
@@ -195,121 +760,161 @@ public class EsUtilServiceImpl implements EsUtilService {
     return paginatedResult;
   }
 
-  private SearchSourceBuilder buildSearchSourceBuilder(SearchCriteria searchCriteria) {
+  private SearchSourceBuilder buildSearchSourceBuilder(String esIndexName,
+      SearchCriteria searchCriteria, List<String> facets) {
     log.info("Building search query");
     if (searchCriteria == null || searchCriteria.toString().isEmpty()) {
       log.error("Search criteria body is missing");
       return null;
     }
-    BoolQueryBuilder boolQueryBuilder = buildFilterQuery(searchCriteria.getFilterCriteriaMap());
-    SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-    searchSourceBuilder.query(boolQueryBuilder);
-    addSortToSearchSourceBuilder(searchCriteria, searchSourceBuilder);
-    addRequestedFieldsToSearchSourceBuilder(searchCriteria, searchSourceBuilder);
-    addQueryStringToFilter(searchCriteria.getSearchString(), boolQueryBuilder);
-    addFacetsToSearchSourceBuilder(searchCriteria.getFacets(), searchSourceBuilder);
-    return searchSourceBuilder;
-  }
-
-  private BoolQueryBuilder buildFilterQuery(Map<String, Object> filterCriteriaMap) {
-    BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
-    if (filterCriteriaMap != null) {
-      filterCriteriaMap.forEach(
-          (field, value) -> {
-            if (value instanceof Boolean) {
-              boolQueryBuilder.must(QueryBuilders.termQuery(field, value));
-            } else if (value instanceof ArrayList) {
-              boolQueryBuilder.must(
-                  QueryBuilders.termsQuery(
-                      field + Constants.KEYWORD, ((ArrayList<?>) value).toArray()));
-            } else if (value instanceof String) {
-              boolQueryBuilder.must(QueryBuilders.termsQuery(field + Constants.KEYWORD, value));
-            }
-          });
-    }
-    return boolQueryBuilder;
+    return queryPlanner.plan(esIndexName, searchCriteria, facets);
   }
 
-  private void addSortToSearchSourceBuilder(
-      SearchCriteria searchCriteria, SearchSourceBuilder searchSourceBuilder) {
-    if (isNotBlank(searchCriteria.getOrderBy()) && isNotBlank(searchCriteria.getOrderDirection())) {
-      SortOrder sortOrder =
-          Constants.ASC.equals(searchCriteria.getOrderDirection()) ? SortOrder.ASC : SortOrder.DESC;
-      searchSourceBuilder.sort(
-          SortBuilders.fieldSort(searchCriteria.getOrderBy() + Constants.KEYWORD).order(sortOrder));
-    }
+  private boolean isNotBlank(String value) {
+    return value != null && !value.trim().isEmpty();
   }
 
-  private void addRequestedFieldsToSearchSourceBuilder(
-      SearchCriteria searchCriteria, SearchSourceBuilder searchSourceBuilder) {
-    if (searchCriteria.getRequestedFields() == null) {
-      // Get all fields in response
-      searchSourceBuilder.fetchSource(null);
-    } else {
-      if (searchCriteria.getRequestedFields().isEmpty()) {
-        log.error("Please specify at least one field to include in the results.");
-      }
-      searchSourceBuilder.fetchSource(
-          searchCriteria.getRequestedFields().toArray(new String[0]), null);
+  @Override
+  public String deleteDocumentsByCriteria(String esIndexName, SearchSourceBuilder sourceBuilder) {
+    return deleteDocumentsByCriteria(esIndexName, sourceBuilder, deleteRequestsPerSecond);
+  }
+
+  @Override
+  public String deleteDocumentsByCriteria(String esIndexName, SearchSourceBuilder sourceBuilder,
+      float requestsPerSecond) {
+    if (sourceBuilder == null || sourceBuilder.query() == null) {
+      throw new CustomException(Constants.ERROR, "Delete criteria query is missing",
+          HttpStatus.BAD_REQUEST);
+    }
+    try {
+      Request request = new Request("POST",
+          "/" + indexRouter.readAlias(esIndexName) + "/_delete_by_query");
+      request.addParameter("wait_for_completion", "false");
+      request.addParameter("conflicts", "proceed");
+      request.addParameter("slices", "auto");
+      request.addParameter(REQUESTS_PER_SECOND, String.valueOf(requestsPerSecond));
+      request.setJsonEntity(new SearchSourceBuilder().query(sourceBuilder.query()).toString());
+      String taskId = performLowLevelRequest(request).path("task").asText(null);
+      log.info("Started delete by query task {} on {}", taskId, esIndexName);
+      bumpVersionOnCompletion(esIndexName, taskId);
+      return taskId;
+    } catch (IOException e) {
+      log.error("Error occurred during deleting documents by criteria from Elasticsearch.", e);
+      throw toTaskException(e);
     }
   }
 
-  private void addQueryStringToFilter(String searchString, BoolQueryBuilder boolQueryBuilder) {
-    if (isNotBlank(searchString)) {
-      boolQueryBuilder.must(
-          QueryBuilders.boolQuery()
-              .should(new WildcardQueryBuilder("searchTags.keyword", "*" + searchString + "*")));
+  /**
+   * Polls the delete by query task and bumps the index version once it has completed, so that
+   * results and facets cached while its deletes were still landing are not served afterwards.
+   */
+  private void bumpVersionOnCompletion(String esIndexName, String taskId) {
+    if (taskId == null) {
+      return;
+    }
+    try {
+      taskWatcher.schedule(() -> {
+        try {
+          if (!Boolean.TRUE.equals(getTaskStatus(taskId).get("completed"))) {
+            bumpVersionOnCompletion(esIndexName, taskId);
+            return;
+          }
+        } catch (CustomException e) {
+          if (e.getHttpStatusCode() != HttpStatus.NOT_FOUND) {
+            bumpVersionOnCompletion(esIndexName, taskId);
+            return;
+          }
+        }
+        indexVersionService.bump(esIndexName);
+        log.info("Delete by query task {} on {} completed", taskId, esIndexName);
+      }, deleteTaskPollIntervalMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      log.debug("Skipping completion watch of task {} during shutdown", taskId);
     }
   }
 
-  private void addFacetsToSearchSourceBuilder(
-      List<String> facets, SearchSourceBuilder searchSourceBuilder) {
-    if (facets != null) {
-      for (String field : facets) {
-        searchSourceBuilder.aggregation(
-            AggregationBuilders.terms(field + "_agg").field(field + ".keyword").size(250));
+  @Override
+  public Map<String, Object> getTaskStatus(String taskId) {
+    try {
+      JsonNode taskResponse = performLowLevelRequest(new Request("GET", "/_tasks/" + taskId));
+      JsonNode task = taskResponse.path("task");
+      boolean completed = taskResponse.path("completed").asBoolean(false);
+      JsonNode progress = completed && taskResponse.has(RESPONSE) ? taskResponse.path(RESPONSE)
+          : task.path("status");
+      long runningTimeMillis = TimeUnit.NANOSECONDS.toMillis(
+          task.path("running_time_in_nanos").asLong(0));
+      long deleted = progress.path("deleted").asLong(0);
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("taskId", taskId);
+      status.put("action", task.path("action").asText(null));
+      status.put("completed", completed);
+      status.put("total", progress.path("total").asLong(0));
+      status.put("deleted", deleted);
+      status.put("batches", progress.path("batches").asLong(0));
+      status.put("versionConflicts", progress.path("version_conflicts").asLong(0));
+      status.put("requestsPerSecond", progress.path("requests_per_second").asDouble(-1));
+      status.put("throttledMillis", progress.path("throttled_millis").asLong(0));
+      status.put("runningTimeMillis", runningTimeMillis);
+      status.put("docsPerSecond",
+          runningTimeMillis > 0 ? deleted * 1000d / runningTimeMillis : 0d);
+      if (progress.path("failures").size() > 0) {
+        status.put("failures", objectMapper.convertValue(progress.path("failures"), List.class));
+      }
+      if (taskResponse.has("error")) {
+        status.put("error", objectMapper.convertValue(taskResponse.path("error"), Map.class));
+      }
+      return status;
+    } catch (ResponseException e) {
+      if (e.getResponse().getStatusLine().getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+        throw new CustomException(Constants.ERROR, Constants.NOT_FOUND, HttpStatus.NOT_FOUND);
       }
+      throw new CustomException(Constants.ERROR, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    } catch (IOException e) {
+      log.error("Error while fetching task {} from Elasticsearch: {}", taskId, e.getMessage());
+      throw new CustomException(Constants.ERROR, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
   }
 
-  private boolean isNotBlank(String value) {
-    return value != null && !value.trim().isEmpty();
+  @Override
+  public void cancelTask(String taskId) {
+    try {
+      performLowLevelRequest(new Request("POST", "/_tasks/" + taskId + "/_cancel"));
+      log.info("Cancelled Elasticsearch task {}", taskId);
+    } catch (IOException e) {
+      log.error("Error while cancelling task {}: {}", taskId, e.getMessage());
+      throw new CustomException(Constants.ERROR, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
   }
 
   @Override
-  public void deleteDocumentsByCriteria(String esIndexName, SearchSourceBuilder sourceBuilder) {
+  public void rethrottleDeleteTask(String taskId, float requestsPerSecond) {
     try {
-      SearchHits searchHits = executeSearch(esIndexName, sourceBuilder);
-      if (searchHits.getTotalHits().value > 0) {
-        BulkResponse bulkResponse = deleteMatchingDocuments(esIndexName, searchHits);
-        if (!bulkResponse.hasFailures()) {
-          log.info("Documents matching the criteria deleted successfully from Elasticsearch.");
-        } else {
-          log.error("Some documents failed to delete from Elasticsearch.");
-        }
-      } else {
-        log.info("No documents match the criteria.");
-      }
-    } catch (Exception e) {
-      log.error("Error occurred during deleting documents by criteria from Elasticsearch.", e);
+      Request request = new Request("POST", "/_delete_by_query/" + taskId + "/_rethrottle");
+      request.addParameter(REQUESTS_PER_SECOND, String.valueOf(requestsPerSecond));
+      performLowLevelRequest(request);
+      log.info("Rethrottled delete by query task {} to {} requests per second", taskId,
+          requestsPerSecond);
+    } catch (IOException e) {
+      log.error("Error while rethrottling task {}: {}", taskId, e.getMessage());
+      throw toTaskException(e);
     }
   }
 
-  private SearchHits executeSearch(String esIndexName, SearchSourceBuilder sourceBuilder)
-      throws IOException {
-    SearchRequest searchRequest = new SearchRequest(esIndexName);
-    searchRequest.source(sourceBuilder);
-    SearchResponse searchResponse =
-        elasticsearchClient.search(searchRequest, RequestOptions.DEFAULT);
-    return searchResponse.getHits();
+  /**
+   * Requests Elasticsearch rejects as invalid keep their 4xx status and message.
+   */
+  private CustomException toTaskException(IOException e) {
+    if (e instanceof ResponseException) {
+      int status = ((ResponseException) e).getResponse().getStatusLine().getStatusCode();
+      if (status >= 400 && status < 500) {
+        return new CustomException(Constants.ERROR, e.getMessage(), HttpStatus.valueOf(status));
+      }
+    }
+    return new CustomException(Constants.ERROR, e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
   }
 
-  private BulkResponse deleteMatchingDocuments(String esIndexName, SearchHits searchHits)
-      throws IOException {
-    BulkRequest bulkRequest = new BulkRequest();
-    searchHits.forEach(
-        hit -> bulkRequest.add(new DeleteRequest(esIndexName, Constants.INDEX_TYPE, hit.getId())));
-    return elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+  private JsonNode performLowLevelRequest(Request request) throws IOException {
+    Response response = elasticsearchClient.getLowLevelClient().performRequest(request);
+    return objectMapper.readTree(EntityUtils.toString(response.getEntity()));
   }
 }
-
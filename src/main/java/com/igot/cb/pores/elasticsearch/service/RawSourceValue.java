@@ -0,0 +1,125 @@
+package com.igot.cb.pores.elasticsearch.service;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * The {@code _source} of a search hit as a raw JSON value. Wrapped in a
+ * {@link com.fasterxml.jackson.databind.util.RawValue}, it is written by UTF-8 generators (the
+ * response body and the JSON cache format) by copying its bytes into the output buffer, without
+ * decoding them into a String first. Only character based generators fall back to the decoded
+ * text. The quoted forms are never used for raw values and go through that text as well.
+ */
+final class RawSourceValue implements SerializableString {
+
+  private final BytesReference source;
+  private String text;
+
+  RawSourceValue(BytesReference source) {
+    this.source = source;
+  }
+
+  @Override
+  public String getValue() {
+    if (text == null) {
+      text = source.utf8ToString();
+    }
+    return text;
+  }
+
+  @Override
+  public int charLength() {
+    return getValue().length();
+  }
+
+  @Override
+  public byte[] asUnquotedUTF8() {
+    return BytesReference.toBytes(source);
+  }
+
+  @Override
+  public int appendUnquotedUTF8(byte[] buffer, int offset) {
+    int length = source.length();
+    if (offset + length > buffer.length) {
+      return -1;
+    }
+    int position = offset;
+    try {
+      BytesRefIterator iterator = source.iterator();
+      BytesRef ref;
+      while ((ref = iterator.next()) != null) {
+        System.arraycopy(ref.bytes, ref.offset, buffer, position, ref.length);
+        position += ref.length;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return length;
+  }
+
+  @Override
+  public int writeUnquotedUTF8(OutputStream out) throws IOException {
+    source.writeTo(out);
+    return source.length();
+  }
+
+  @Override
+  public int putUnquotedUTF8(ByteBuffer buffer) {
+    int length = source.length();
+    if (length > buffer.remaining()) {
+      return -1;
+    }
+    buffer.put(asUnquotedUTF8());
+    return length;
+  }
+
+  @Override
+  public int appendUnquoted(char[] buffer, int offset) {
+    return quoted().appendUnquoted(buffer, offset);
+  }
+
+  @Override
+  public char[] asQuotedChars() {
+    return quoted().asQuotedChars();
+  }
+
+  @Override
+  public byte[] asQuotedUTF8() {
+    return quoted().asQuotedUTF8();
+  }
+
+  @Override
+  public int appendQuotedUTF8(byte[] buffer, int offset) {
+    return quoted().appendQuotedUTF8(buffer, offset);
+  }
+
+  @Override
+  public int appendQuoted(char[] buffer, int offset) {
+    return quoted().appendQuoted(buffer, offset);
+  }
+
+  @Override
+  public int writeQuotedUTF8(OutputStream out) throws IOException {
+    return quoted().writeQuotedUTF8(out);
+  }
+
+  @Override
+  public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+    return quoted().putQuotedUTF8(buffer);
+  }
+
+  private SerializedString quoted() {
+    return new SerializedString(getValue());
+  }
+
+  @Override
+  public String toString() {
+    return getValue();
+  }
+}
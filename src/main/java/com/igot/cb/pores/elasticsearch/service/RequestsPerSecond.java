@@ -0,0 +1,24 @@
+package com.igot.cb.pores.elasticsearch.service;
+
+import com.igot.cb.pores.exceptions.CustomException;
+import com.igot.cb.pores.util.Constants;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Throttle of delete by query tasks: a positive number of requests per second, or -1 for no
+ * throttle. Anything else is rejected by Elasticsearch.
+ */
+public final class RequestsPerSecond {
+
+  public static final float UNLIMITED = -1f;
+
+  private RequestsPerSecond() {
+  }
+
+  public static void validate(float requestsPerSecond) {
+    if (requestsPerSecond != UNLIMITED && !(requestsPerSecond > 0)) {
+      throw new CustomException(Constants.ERROR,
+          "requestsPerSecond must be -1 or greater than 0", HttpStatus.BAD_REQUEST);
+    }
+  }
+}
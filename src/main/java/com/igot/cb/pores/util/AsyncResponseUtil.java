@@ -0,0 +1,71 @@
+package com.igot.cb.pores.util;
+
+import com.igot.cb.pores.dto.CustomResponse;
+import com.igot.cb.pores.dto.RespParam;
+import com.igot.cb.pores.exceptions.CustomException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Helpers for controllers that release the servlet thread while a search is in flight.
+ */
+public class AsyncResponseUtil {
+
+  private AsyncResponseUtil() {
+  }
+
+  /**
+   * Wraps the future in a DeferredResult. On timeout or client disconnect the future is
+   * cancelled so the cancellation reaches Elasticsearch.
+   */
+  public static DeferredResult<ResponseEntity<CustomResponse>> toDeferredResult(
+      CompletableFuture<CustomResponse> future, long timeoutMs) {
+    DeferredResult<ResponseEntity<CustomResponse>> deferredResult =
+        new DeferredResult<>(timeoutMs);
+    deferredResult.onTimeout(() -> {
+      CustomResponse response = new CustomResponse();
+      response.setParams(new RespParam());
+      response.getParams().setStatus(Constants.FAILED_CONST);
+      response.setResponseCode(HttpStatus.GATEWAY_TIMEOUT);
+      deferredResult.setErrorResult(new ResponseEntity<>(response, HttpStatus.GATEWAY_TIMEOUT));
+      future.cancel(true);
+    });
+    deferredResult.onError(e -> future.cancel(true));
+    future.whenComplete((response, e) -> {
+      if (e != null) {
+        deferredResult.setErrorResult(e);
+      } else {
+        deferredResult.setResult(new ResponseEntity<>(response, response.getResponseCode()));
+      }
+    });
+    return deferredResult;
+  }
+
+  /**
+   * Status for a failed future: the status of a CustomException, otherwise 500.
+   */
+  public static HttpStatus errorStatus(Throwable e) {
+    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    if (cause instanceof CustomException
+        && ((CustomException) cause).getHttpStatusCode() != null) {
+      return ((CustomException) cause).getHttpStatusCode();
+    }
+    return HttpStatus.INTERNAL_SERVER_ERROR;
+  }
+
+  /**
+   * Cancels the source future when the dependent future is cancelled.
+   */
+  public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> dependent,
+      CompletableFuture<?> source) {
+    dependent.whenComplete((result, e) -> {
+      if (dependent.isCancelled()) {
+        source.cancel(true);
+      }
+    });
+    return dependent;
+  }
+}
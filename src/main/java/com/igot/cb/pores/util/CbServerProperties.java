@@ -23,6 +23,12 @@ public class CbServerProperties {
   @Value("${content-read-endpoint-fields}")
   private String contentReadEndPointFields;
 
+  @Value("${content-search-endpoint}")
+  private String contentSearchEndPoint;
+
+  @Value("${content-search-batch-size}")
+  private int contentSearchBatchSize;
+
   @Value("${redis.insights.index}")
   private int redisInsightIndex;
 
@@ -47,6 +47,7 @@ public class Constants {
   public static final String CREATED_DATE = "createdDate";
   public static final String PAYLOAD_VALIDATION_FILE = "/payloadValidation/demandValidationData.json";
   public static final String INDEX_NAME = "demand_entity";
+  public static final String CONTENT_PARTNER_INDEX_NAME = "content_partner_entity";
   public static final String INDEX_TYPE = "_doc";
   public static final String RESULT = "result";
   public static final String FAILED_CONST = "FAILED";
@@ -54,8 +55,6 @@ public class Constants {
   public static final String REDIS_KEY_PREFIX = "demand_";
   public static final String KEYWORD = ".keyword";
   public static final String ASC = "asc";
-  public static final String REQUEST_PAYLOAD = "requestPayload";
-  public static final String JWT_SECRET_KEY = "demand_search_result";
   public static final String PAYLOAD_VALIDATION_FILE_CONTENT_PROVIDER = "/payloadValidation/contentProviderValidation.json";
   public static final String CONTENT_PROVIDER_ID = "id";
   public static final String INTEREST_COUNT = "demand_search_result";
@@ -90,6 +89,8 @@ public class Constants {
   public static final String AVG_RATING = "avgRating";
   public static final String ORG_ID = "orgId";
   public static final String CHILDREN = "children";
+  public static final String REMOVE_CHILDREN = "removeChildren";
+  public static final String ORDER = "order";
   public static final String API_VERSION_1 = "1.0";
   public static final String API_PLAYLIST_CREATE = "api.playlist.create";
   public static final String API_PLAYLIST_READ = "api.playlist.read";
@@ -108,6 +109,13 @@ public class Constants {
   public static final String FILTERS = "filters";
   public static final String REQUEST_TYPE = "requestType";
   public static final String RQST_CONTENT_TYPE = "type";
+  public static final String TASK_ID = "taskId";
+  public static final String NOT_FOUND_IDS = "notFoundIds";
+  public static final String ENRICHMENT_FAILURES = "enrichmentFailures";
+  public static final String TIMED_OUT_CONTEXTS = "timedOutContexts";
+  public static final String REQUEST = "request";
+  public static final String FIELDS = "fields";
+  public static final String LIMIT = "limit";
 
   private Constants() {
   }